@@ -0,0 +1,659 @@
+// Generated by decoderGenerator.PerceptorDecoderGenerator from
+// tools/perceptors.schema - do not edit, change the schema instead.
+package agentIO.perceptorInputUtil;
+
+/**
+ * Decoder for server messages, generated from the perceptor schema.
+ *
+ * A subclass implements the callbacks, which are called for every decoded
+ * perceptor, object or list, and reads the values from the protected fields.
+ * Symbols are stored as byte ranges of the message (...Start, ...Length, a
+ * length of -1 means, that the symbol has not been sent), use the methods of
+ * field "in" to compare or convert them.
+ */
+public abstract class PerceptorDecoder {
+
+  /** Perceptor type of a list, that is not described in the schema. */
+  public static final int UNKNOWN_PERCEPTOR = -1;
+  /** Perceptor type "time". */
+  public static final int TIME = 0;
+  /** Perceptor type "GS". */
+  public static final int GS = 1;
+  /** Perceptor type "GYR". */
+  public static final int GYR = 2;
+  /** Perceptor type "ACC". */
+  public static final int ACC = 3;
+  /** Perceptor type "HJ". */
+  public static final int HJ = 4;
+  /** Perceptor type "FRP". */
+  public static final int FRP = 5;
+  /** Perceptor type "hear". */
+  public static final int HEAR = 6;
+  /** Perceptor type "See". */
+  public static final int SEE = 7;
+  /** Number of perceptor types described in the schema. */
+  public static final int PERCEPTOR_COUNT = 8;
+
+  private static final String[] PERCEPTOR_NAMES = {"time", "GS", "GYR", "ACC", "HJ", "FRP", "hear", "See"};
+
+  private static final byte[] TAG_ACC = {'A', 'C', 'C'};
+  private static final byte[] TAG_FRP = {'F', 'R', 'P'};
+  private static final byte[] TAG_GS = {'G', 'S'};
+  private static final byte[] TAG_GYR = {'G', 'Y', 'R'};
+  private static final byte[] TAG_HJ = {'H', 'J'};
+  private static final byte[] TAG_SEE = {'S', 'e', 'e'};
+  private static final byte[] TAG_A = {'a'};
+  private static final byte[] TAG_AX = {'a', 'x'};
+  private static final byte[] TAG_C = {'c'};
+  private static final byte[] TAG_F = {'f'};
+  private static final byte[] TAG_HEAR = {'h', 'e', 'a', 'r'};
+  private static final byte[] TAG_ID = {'i', 'd'};
+  private static final byte[] TAG_N = {'n'};
+  private static final byte[] TAG_NOW = {'n', 'o', 'w'};
+  private static final byte[] TAG_PM = {'p', 'm'};
+  private static final byte[] TAG_POL = {'p', 'o', 'l'};
+  private static final byte[] TAG_RT = {'r', 't'};
+  private static final byte[] TAG_T = {'t'};
+  private static final byte[] TAG_TEAM = {'t', 'e', 'a', 'm'};
+  private static final byte[] TAG_TIME = {'t', 'i', 'm', 'e'};
+
+  /** Scanner over the message, which is actually decoded. */
+  protected final MessageScanner in = new MessageScanner();
+
+  protected double serverTime;
+  protected double playTime;
+  protected int playModeStart, playModeLength = -1;
+  protected int gyroNameStart, gyroNameLength = -1;
+  protected double gyroX;
+  protected double gyroY;
+  protected double gyroZ;
+  protected int accNameStart, accNameLength = -1;
+  protected double accX;
+  protected double accY;
+  protected double accZ;
+  protected int jointNameStart, jointNameLength = -1;
+  protected double jointAngle;
+  protected int frNameStart, frNameLength = -1;
+  protected double frOriginX;
+  protected double frOriginY;
+  protected double frOriginZ;
+  protected double frForceX;
+  protected double frForceY;
+  protected double frForceZ;
+  protected double hearTime;
+  protected int hearDirectionStart, hearDirectionLength = -1;
+  protected int hearMessageStart, hearMessageLength = -1;
+  protected int seenObjectStart, seenObjectLength = -1;
+  protected double polDistance;
+  protected double polAzimuth;
+  protected double polElevation;
+  protected int playerTeamStart, playerTeamLength = -1;
+  protected int playerIDStart, playerIDLength = -1;
+  protected int bodyPartStart, bodyPartLength = -1;
+
+  /**
+   * Returns the name of a perceptor type, as used in server messages.
+   *
+   * @param perceptor One of the perceptor type constants.
+   * @return The name, or "unknown" for UNKNOWN_PERCEPTOR.
+   */
+  public static String getPerceptorName(int perceptor) {
+    return perceptor >= 0 && perceptor < PERCEPTOR_COUNT ? PERCEPTOR_NAMES[perceptor] : "unknown";
+  }
+
+  /**
+   * Decodes a complete server message and calls the callbacks.
+   *
+   * @param message Buffer holding the message.
+   * @param offset Index of the first byte of the message.
+   * @param length Number of bytes of the message.
+   */
+  public final void decode(byte[] message, int offset, int length) {
+    in.reset(message, offset, length);
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.END)
+        return;
+      int start = item == MessageScanner.TOKEN ? in.tokenStart : in.getPosition() - 1;
+      int perceptor = UNKNOWN_PERCEPTOR;
+      boolean ok = item == MessageScanner.OPEN && in.nextSymbol();
+      if (ok) {
+        perceptor = perceptorOf();
+        int unchanged = perceptor == UNKNOWN_PERCEPTOR ? 0 : unchangedLength(perceptor, start);
+        if (unchanged > 0) {
+          in.skipTo(start + unchanged);
+          continue;
+        }
+        switch (perceptor) {
+          case TIME:
+            ok = decodeTime();
+            break;
+          case GS:
+            ok = decodeGS();
+            break;
+          case GYR:
+            ok = decodeGYR();
+            break;
+          case ACC:
+            ok = decodeACC();
+            break;
+          case HJ:
+            ok = decodeHJ();
+            break;
+          case FRP:
+            ok = decodeFRP();
+            break;
+          case HEAR:
+            ok = decodeHear();
+            break;
+          case SEE:
+            ok = decodeSee();
+            break;
+          default:
+            ok = in.skipRest();
+        }
+      }
+      if (!ok) {
+        in.skipToDepth(0);
+        onMalformed(perceptor, start, in.getPosition());
+      }
+      else if (perceptor != UNKNOWN_PERCEPTOR)
+        onDecoded(perceptor, start, in.getPosition());
+    }
+  }
+
+  private int perceptorOf() {
+    switch (in.tokenLength) {
+      case 2:
+        if (in.tokenEquals(TAG_GS))
+          return GS;
+        if (in.tokenEquals(TAG_HJ))
+          return HJ;
+        break;
+      case 3:
+        if (in.tokenEquals(TAG_GYR))
+          return GYR;
+        if (in.tokenEquals(TAG_ACC))
+          return ACC;
+        if (in.tokenEquals(TAG_FRP))
+          return FRP;
+        if (in.tokenEquals(TAG_SEE))
+          return SEE;
+        break;
+      case 4:
+        if (in.tokenEquals(TAG_TIME))
+          return TIME;
+        if (in.tokenEquals(TAG_HEAR))
+          return HEAR;
+        break;
+    }
+    return UNKNOWN_PERCEPTOR;
+  }
+
+  private boolean decodeTime() {
+    serverTime = 0;
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      switch (in.tokenLength) {
+        case 3:
+          if (in.tokenEquals(TAG_NOW)) {
+            if (!in.nextReal())
+              return false;
+            serverTime = in.real;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+      }
+      if (!in.skipRest())
+        return false;
+    }
+    onTime();
+    return true;
+  }
+
+  private boolean decodeGS() {
+    playTime = 0;
+    playModeLength = -1;
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      switch (in.tokenLength) {
+        case 1:
+          if (in.tokenEquals(TAG_T)) {
+            if (!in.nextReal())
+              return false;
+            playTime = in.real;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+        case 2:
+          if (in.tokenEquals(TAG_PM)) {
+            if (!in.nextSymbol())
+              return false;
+            playModeStart = in.tokenStart;
+            playModeLength = in.tokenLength;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+      }
+      if (!in.skipRest())
+        return false;
+    }
+    onGameState();
+    return true;
+  }
+
+  private boolean decodeGYR() {
+    gyroNameLength = -1;
+    gyroX = 0;
+    gyroY = 0;
+    gyroZ = 0;
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      switch (in.tokenLength) {
+        case 1:
+          if (in.tokenEquals(TAG_N)) {
+            if (!in.nextSymbol())
+              return false;
+            gyroNameStart = in.tokenStart;
+            gyroNameLength = in.tokenLength;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+        case 2:
+          if (in.tokenEquals(TAG_RT)) {
+            if (!in.nextReal())
+              return false;
+            gyroX = in.real;
+            if (!in.nextReal())
+              return false;
+            gyroY = in.real;
+            if (!in.nextReal())
+              return false;
+            gyroZ = in.real;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+      }
+      if (!in.skipRest())
+        return false;
+    }
+    onGyro();
+    return true;
+  }
+
+  private boolean decodeACC() {
+    accNameLength = -1;
+    accX = 0;
+    accY = 0;
+    accZ = 0;
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      switch (in.tokenLength) {
+        case 1:
+          if (in.tokenEquals(TAG_N)) {
+            if (!in.nextSymbol())
+              return false;
+            accNameStart = in.tokenStart;
+            accNameLength = in.tokenLength;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          if (in.tokenEquals(TAG_A)) {
+            if (!in.nextReal())
+              return false;
+            accX = in.real;
+            if (!in.nextReal())
+              return false;
+            accY = in.real;
+            if (!in.nextReal())
+              return false;
+            accZ = in.real;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+      }
+      if (!in.skipRest())
+        return false;
+    }
+    onAcc();
+    return true;
+  }
+
+  private boolean decodeHJ() {
+    jointNameLength = -1;
+    jointAngle = 0;
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      switch (in.tokenLength) {
+        case 1:
+          if (in.tokenEquals(TAG_N)) {
+            if (!in.nextSymbol())
+              return false;
+            jointNameStart = in.tokenStart;
+            jointNameLength = in.tokenLength;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+        case 2:
+          if (in.tokenEquals(TAG_AX)) {
+            if (!in.nextReal())
+              return false;
+            jointAngle = in.real;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+      }
+      if (!in.skipRest())
+        return false;
+    }
+    onHingeJoint();
+    return true;
+  }
+
+  private boolean decodeFRP() {
+    frNameLength = -1;
+    frOriginX = 0;
+    frOriginY = 0;
+    frOriginZ = 0;
+    frForceX = 0;
+    frForceY = 0;
+    frForceZ = 0;
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      switch (in.tokenLength) {
+        case 1:
+          if (in.tokenEquals(TAG_N)) {
+            if (!in.nextSymbol())
+              return false;
+            frNameStart = in.tokenStart;
+            frNameLength = in.tokenLength;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          if (in.tokenEquals(TAG_C)) {
+            if (!in.nextReal())
+              return false;
+            frOriginX = in.real;
+            if (!in.nextReal())
+              return false;
+            frOriginY = in.real;
+            if (!in.nextReal())
+              return false;
+            frOriginZ = in.real;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          if (in.tokenEquals(TAG_F)) {
+            if (!in.nextReal())
+              return false;
+            frForceX = in.real;
+            if (!in.nextReal())
+              return false;
+            frForceY = in.real;
+            if (!in.nextReal())
+              return false;
+            frForceZ = in.real;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+      }
+      if (!in.skipRest())
+        return false;
+    }
+    onForceResistance();
+    return true;
+  }
+
+  private boolean decodeHear() {
+    hearTime = 0;
+    hearDirectionLength = -1;
+    hearMessageLength = -1;
+    if (!in.nextReal())
+      return false;
+    hearTime = in.real;
+    if (!in.nextSymbol())
+      return false;
+    hearDirectionStart = in.tokenStart;
+    hearDirectionLength = in.tokenLength;
+    if (!in.nextText())
+      return false;
+    hearMessageStart = in.tokenStart;
+    hearMessageLength = in.tokenLength;
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      if (!in.skipRest())
+        return false;
+    }
+    onHear();
+    return true;
+  }
+
+  private boolean decodeSee() {
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      if (!decodeSeenObject())
+        return false;
+    }
+    return true;
+  }
+
+  private boolean decodeSeenObject() {
+    seenObjectStart = in.tokenStart;
+    seenObjectLength = in.tokenLength;
+    polDistance = 0;
+    polAzimuth = 0;
+    polElevation = 0;
+    playerTeamLength = -1;
+    playerIDLength = -1;
+    onSeenObjectOpen();
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      switch (in.tokenLength) {
+        case 2:
+          if (in.tokenEquals(TAG_ID)) {
+            if (!in.nextSymbol())
+              return false;
+            playerIDStart = in.tokenStart;
+            playerIDLength = in.tokenLength;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+        case 3:
+          if (in.tokenEquals(TAG_POL)) {
+            if (!in.nextReal())
+              return false;
+            polDistance = in.real;
+            if (!in.nextReal())
+              return false;
+            polAzimuth = in.real;
+            if (!in.nextReal())
+              return false;
+            polElevation = in.real;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            onSeenObjectPolar();
+            continue;
+          }
+          break;
+        case 4:
+          if (in.tokenEquals(TAG_TEAM)) {
+            if (!in.nextSymbol())
+              return false;
+            playerTeamStart = in.tokenStart;
+            playerTeamLength = in.tokenLength;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            continue;
+          }
+          break;
+      }
+      if (!decodeBodyPart())
+        return false;
+    }
+    onSeenObject();
+    return true;
+  }
+
+  private boolean decodeBodyPart() {
+    bodyPartStart = in.tokenStart;
+    bodyPartLength = in.tokenLength;
+    polDistance = 0;
+    polAzimuth = 0;
+    polElevation = 0;
+    for (;;) {
+      int item = in.next();
+      if (item == MessageScanner.CLOSE)
+        break;
+      if (item == MessageScanner.TOKEN)
+        continue; // value not described by the schema
+      if (item == MessageScanner.END || !in.nextSymbol())
+        return false;
+      switch (in.tokenLength) {
+        case 3:
+          if (in.tokenEquals(TAG_POL)) {
+            if (!in.nextReal())
+              return false;
+            polDistance = in.real;
+            if (!in.nextReal())
+              return false;
+            polAzimuth = in.real;
+            if (!in.nextReal())
+              return false;
+            polElevation = in.real;
+            if (in.next() != MessageScanner.CLOSE)
+              return false;
+            onBodyPartPolar();
+            continue;
+          }
+          break;
+      }
+      if (!in.skipRest())
+        return false;
+    }
+    return true;
+  }
+
+  protected abstract void onTime();
+  protected abstract void onGameState();
+  protected abstract void onGyro();
+  protected abstract void onAcc();
+  protected abstract void onHingeJoint();
+  protected abstract void onForceResistance();
+  protected abstract void onHear();
+  protected abstract void onSeenObjectOpen();
+  protected abstract void onSeenObject();
+  protected abstract void onSeenObjectPolar();
+  protected abstract void onBodyPartPolar();
+
+  /**
+   * Called for a perceptor, which does not match the schema. Its remaining
+   * content has been skipped already.
+   *
+   * @param perceptor Perceptor type, or UNKNOWN_PERCEPTOR.
+   * @param start Offset of the opening bracket in the message buffer.
+   * @param end Offset behind the last byte, that has been read.
+   */
+  protected abstract void onMalformed(int perceptor, int start, int end);
+
+  /**
+   * Called before a perceptor is decoded, allows to skip perceptors, which
+   * have not changed since the previous message. The values of a skipped
+   * perceptor are not read and no callbacks are called for it.
+   *
+   * @param perceptor Perceptor type.
+   * @param start Offset of the opening bracket in the message buffer.
+   * @return Length of the perceptor in bytes, if it is known to be unchanged,
+   * or 0 if it has to be decoded.
+   */
+  protected int unchangedLength(int perceptor, int start) {
+    return 0;
+  }
+
+  /**
+   * Called after a perceptor has been decoded completely and its callback
+   * has been called.
+   *
+   * @param perceptor Perceptor type.
+   * @param start Offset of the opening bracket in the message buffer.
+   * @param end Offset behind the closing bracket.
+   */
+  protected void onDecoded(int perceptor, int start, int end) {
+  }
+}
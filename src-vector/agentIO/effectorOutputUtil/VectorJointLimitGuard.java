@@ -0,0 +1,46 @@
+package agentIO.effectorOutputUtil;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+import util.RobotConsts;
+
+/**
+ * Joint limit guard based on the Vector API.
+ *
+ * Limits as many joints per step as doubles fit into a vector of the
+ * preferred size of the hardware (e.g. 4 with AVX2), the remaining joints
+ * are limited one after the other.
+ *
+ * This class needs Java 16 or newer and the module jdk.incubator.vector, so it
+ * lies in the folder src-vector and is compiled by the target
+ * "-compile-vector-classes" in build.xml. It is only loaded by reflection
+ * in JointLimitGuard, never refer to it directly.
+ */
+final class VectorJointLimitGuard extends JointLimitGuard {
+
+  private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+  private static final int BOUND = SPECIES.loopBound(RobotConsts.JointsCount);
+
+  @Override
+  public void apply(double[] commands, double[] angles, double cycleLength) {
+    double rate = 1 / cycleLength;
+    for (int i = 0; i < BOUND; i += SPECIES.length()) {
+      DoubleVector angle = DoubleVector.fromArray(SPECIES, angles, i);
+      DoubleVector upper = DoubleVector.fromArray(SPECIES, maxAngles, i)
+              .sub(angle).mul(rate).max(0);
+      DoubleVector lower = DoubleVector.fromArray(SPECIES, minAngles, i)
+              .sub(angle).mul(rate).min(0);
+      DoubleVector maxVelocity = DoubleVector.fromArray(SPECIES, maxVelocities, i);
+      DoubleVector.fromArray(SPECIES, commands, i)
+              .min(upper).max(lower)
+              .min(maxVelocity).max(maxVelocity.neg())
+              .intoArray(commands, i);
+    }
+    limitScalar(commands, angles, rate, BOUND);
+  }
+
+  @Override
+  public String getName() {
+    return "vector (" + SPECIES.length() + " doubles)";
+  }
+}
@@ -0,0 +1,88 @@
+package agentIO.perceptorInputUtil;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Structural classifier based on the Vector API.
+ *
+ * Compares a whole vector of bytes (the preferred size of the hardware, but
+ * at most 64 bytes, the size of a word of the masks) with the whitespace and
+ * bracket characters at once, and turns the results into the bits of the
+ * masks. Wider vectors (e.g. of SVE) would read beyond a word, and their
+ * bits would not fit into a long, so they are replaced by 64-byte vectors.
+ *
+ * VectorMask.toLong() is not compiled to a single instruction by every JVM
+ * (e.g. not by Java 17), so the comparison results are turned into bits with
+ * vector arithmetic: every byte lane gets the value of its bit within a group
+ * of 8 lanes, the groups are summed up as longs and shifted to their position.
+ *
+ * This class needs Java 16 or newer and the module jdk.incubator.vector, so it
+ * lies in the folder src-vector and is compiled by the target
+ * "-compile-vector-classes" in build.xml. It is only loaded by reflection
+ * in StructuralClassifier, never refer to it directly.
+ */
+final class VectorStructuralClassifier extends StructuralClassifier {
+
+  private static final VectorSpecies<Byte> SPECIES =
+          ByteVector.SPECIES_PREFERRED.length() > 64
+          ? ByteVector.SPECIES_512 : ByteVector.SPECIES_PREFERRED;
+  private static final VectorSpecies<Long> LONG_SPECIES = SPECIES.withLanes(long.class);
+  private static final int LANES = SPECIES.length();
+
+  /** Value of each lane within its group of 8 lanes: 1, 2, 4, ... 128. */
+  private static final ByteVector BIT_VALUES;
+  /** Position of the 8 bits of each group of lanes in the result. */
+  private static final LongVector BIT_SHIFTS;
+  /** Multiplying a long by this sums up its bytes in the highest byte. */
+  private static final long BYTE_SUM = 0x0101010101010101L;
+
+  static {
+    byte[] values = new byte[SPECIES.length()];
+    for (int i = 0; i < values.length; i++)
+      values[i] = (byte) (1 << (i & 7));
+    BIT_VALUES = ByteVector.fromArray(SPECIES, values, 0);
+    long[] shifts = new long[LONG_SPECIES.length()];
+    for (int i = 0; i < shifts.length; i++)
+      shifts[i] = 8 * i;
+    BIT_SHIFTS = LongVector.fromArray(LONG_SPECIES, shifts, 0);
+  }
+
+  @Override
+  public void classify(byte[] message, int offset, int length,
+          long[] whitespace, long[] delimiters) {
+    int fullWords = length >>> 6;
+    for (int word = 0; word < fullWords; word++) {
+      int base = offset + (word << 6);
+      long ws = 0;
+      long del = 0;
+      for (int i = 0; i < 64; i += LANES) {
+        ByteVector v = ByteVector.fromArray(SPECIES, message, base + i);
+        // whitespace are the bytes 0 to ' ', brackets are '(' (0x28) and ')' (0x29)
+        VectorMask<Byte> space = v.compare(VectorOperators.UNSIGNED_LE, (byte) ' ');
+        VectorMask<Byte> bracket = v.and((byte) 0xFE).eq((byte) '(');
+        ws |= toBits(space) << i;
+        del |= toBits(space.or(bracket)) << i;
+      }
+      whitespace[word] = ws;
+      delimiters[word] = del;
+    }
+    classifyScalar(message, offset, fullWords << 6, length, whitespace, delimiters);
+  }
+
+  @Override
+  public String getName() {
+    return "vector (" + SPECIES.length() + " bytes)";
+  }
+
+  private static long toBits(VectorMask<Byte> mask) {
+    LongVector groups = ByteVector.zero(SPECIES).blend(BIT_VALUES, mask).reinterpretAsLongs();
+    return groups.mul(BYTE_SUM)
+            .lanewise(VectorOperators.LSHR, 56)
+            .lanewise(VectorOperators.LSHL, BIT_SHIFTS)
+            .reduceLanes(VectorOperators.OR);
+  }
+}
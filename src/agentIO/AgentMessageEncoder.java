@@ -0,0 +1,192 @@
+package agentIO;
+
+import java.nio.charset.StandardCharsets;
+import util.RobotConsts;
+
+/**
+ * Writes agent messages as bytes into a reusable buffer.
+ *
+ * The effector commands are written directly as the bytes sent to the
+ * server, without building strings: the beginning of each joint command,
+ * e.g. "(he1 ", is encoded once, and the numbers are written digit by digit.
+ * The buffer starts with ServerCommunication.HEADER_LENGTH free bytes, so it
+ * can be passed to ServerCommunication.sendAgentMessage(byte[], int).
+ *
+ * Numbers are written in fixed-point notation with at most
+ * getFractionDigits() digits after the point, without trailing zeros, e.g.
+ * "0.25" or "-3". They are rounded as by quantize(...). Values which are not
+ * finite are written as 0, values beyond +-MAX_VALUE as +-MAX_VALUE, so that
+ * they can be scaled to a long with any number of digits.
+ */
+final class AgentMessageEncoder {
+
+  /** Default number of digits after the decimal point. */
+  static final int FRACTION_DIGITS = 6;
+  static final int MAX_FRACTION_DIGITS = 9;
+  /** Largest absolute value, which is written. */
+  static final double MAX_VALUE = 1e9;
+
+  private static final byte[][] JOINT_PREFIXES = jointPrefixes();
+  private static final byte[] SAY_PREFIX = "(say ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] SYN = "(syn)".getBytes(StandardCharsets.US_ASCII);
+
+  private byte[] buffer = new byte[1024];
+  private int length = ServerCommunication.HEADER_LENGTH;
+  private int fractionDigits = FRACTION_DIGITS;
+  private long fractionScale = 1000000;
+
+  /**
+   * Sets the precision of the numbers.
+   *
+   * @param digits Number of digits after the decimal point, from 0 to
+   * MAX_FRACTION_DIGITS.
+   */
+  void setFractionDigits(int digits) {
+    if (digits < 0 || digits > MAX_FRACTION_DIGITS)
+      throw new IllegalArgumentException("Invalid number of digits: " + digits);
+    fractionDigits = digits;
+    fractionScale = 1;
+    for (int i = 0; i < digits; i++)
+      fractionScale *= 10;
+  }
+
+  int getFractionDigits() {
+    return fractionDigits;
+  }
+
+  /**
+   * Rounds a value to the precision of the numbers.
+   *
+   * @param value The value.
+   * @return The value as it is written, halves are rounded away from 0.
+   */
+  double quantize(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value))
+      return 0;
+    double scaled = Math.round(Math.min(Math.abs(value), MAX_VALUE) * fractionScale);
+    return (value < 0 ? -scaled : scaled) / fractionScale;
+  }
+
+  /**
+   * Starts a new message.
+   */
+  void clear() {
+    length = ServerCommunication.HEADER_LENGTH;
+  }
+
+  /**
+   * Appends a joint command, e.g. "(he1 0.25)".
+   *
+   * @param jointNo Index number of the hinge joint, as defined by the
+   * constants in class RobotConsts.
+   * @param command Velocity in radians per second.
+   */
+  void writeJoint(int jointNo, double command) {
+    // prefix, sign, 10 digits, point and the fraction digits
+    ensureCapacity(JOINT_PREFIXES[jointNo].length + 13 + fractionDigits);
+    write(JOINT_PREFIXES[jointNo]);
+    writeNumber(command);
+    buffer[length++] = ')';
+  }
+
+  /**
+   * Appends a say command, e.g. "(say hello)".
+   *
+   * @param message Message of printable ASCII characters.
+   */
+  void writeSay(CharSequence message) {
+    ensureCapacity(SAY_PREFIX.length + message.length() + 1);
+    write(SAY_PREFIX);
+    for (int i = 0; i < message.length(); i++)
+      buffer[length++] = (byte) message.charAt(i);
+    buffer[length++] = ')';
+  }
+
+  /**
+   * Appends the sync command "(syn)".
+   */
+  void writeSyn() {
+    ensureCapacity(SYN.length);
+    write(SYN);
+  }
+
+  /**
+   * Returns the buffer with the message.
+   *
+   * @return Buffer with the message at index ServerCommunication.HEADER_LENGTH,
+   * valid until the next clear().
+   */
+  byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * Returns the length of the message.
+   *
+   * @return Length in bytes, without the header.
+   */
+  int getLength() {
+    return length - ServerCommunication.HEADER_LENGTH;
+  }
+
+  @Override
+  public String toString() {
+    return new String(buffer, ServerCommunication.HEADER_LENGTH, getLength(),
+            StandardCharsets.US_ASCII);
+  }
+
+  private void writeNumber(double value) {
+    if (Double.isNaN(value) || Double.isInfinite(value))
+      value = 0;
+    long scaled = Math.round(Math.min(Math.abs(value), MAX_VALUE) * fractionScale);
+    if (scaled != 0 && value < 0)
+      buffer[length++] = '-';
+    writeDigits(scaled / fractionScale, 1);
+    long fraction = scaled % fractionScale;
+    if (fraction != 0) {
+      int digits = fractionDigits;
+      while (fraction % 10 == 0) {
+        fraction /= 10;
+        digits--;
+      }
+      buffer[length++] = '.';
+      writeDigits(fraction, digits);
+    }
+  }
+
+  /**
+   * Writes a non-negative number with at least minDigits digits.
+   */
+  private void writeDigits(long value, int minDigits) {
+    int digits = 1;
+    for (long v = value / 10; v != 0; v /= 10)
+      digits++;
+    digits = Math.max(digits, minDigits);
+    for (int i = length + digits - 1; i >= length; i--) {
+      buffer[i] = (byte) ('0' + value % 10);
+      value /= 10;
+    }
+    length += digits;
+  }
+
+  private void write(byte[] bytes) {
+    System.arraycopy(bytes, 0, buffer, length, bytes.length);
+    length += bytes.length;
+  }
+
+  private void ensureCapacity(int additional) {
+    if (length + additional > buffer.length) {
+      byte[] larger = new byte[Math.max(length + additional, 2 * buffer.length)];
+      System.arraycopy(buffer, 0, larger, 0, length);
+      buffer = larger;
+    }
+  }
+
+  private static byte[][] jointPrefixes() {
+    byte[][] prefixes = new byte[RobotConsts.JointsCount][];
+    for (int i = 0; i < prefixes.length; i++)
+      prefixes[i] = ("(" + RobotConsts.getEffectorID(i) + " ")
+              .getBytes(StandardCharsets.US_ASCII);
+    return prefixes;
+  }
+}
@@ -1,6 +1,7 @@
 package agentIO;
 
-import java.util.HashMap;
+import agentIO.effectorOutputUtil.JointLimitGuard;
+import java.util.Arrays;
 import util.RobotConsts;
 
 /** 
@@ -15,7 +16,8 @@ import util.RobotConsts;
  * commands that should be sent to the server. These methods normally will be 
  * used by all classes, which realize the robot´s movements. Is a setter called
  * more than one time for a specific effector, then the last set value 
- * overrides the former ones. 
+ * overrides the former ones (unless they are set in different layers, see 
+ * below). 
  * 2) Use the method sendAgentMessage() to send the commands defined with the
  * setters. This method should be executed once in each server cycle and
  * called inside the act()-method of the agent class. 
@@ -36,14 +38,72 @@ import util.RobotConsts;
  * agent class) as decribed above is strongly recommended. 
  * 
  * Remember that a hinge joint executes a sent command until it gets a new one. 
+ * 
+ * The commands are kept as primitive values, and the agent message is written
+ * directly as bytes into a reusable buffer (see class AgentMessageEncoder), so
+ * setting and sending joint commands creates no objects. 
+ * 
+ * Reducing the size of the agent messages: 
+ * Many agents send the same velocities for most joints in many cycles, e.g. 
+ * 0 while standing or during a keyframe. With setDeltaSuppression(true), a 
+ * joint command is not sent again, if it is equal to the last sent command 
+ * for the joint, which the joint executes anyway. With setPrecision(...), the
+ * commands are rounded to fewer digits, which also makes equal commands more 
+ * likely. Both reduce the traffic and the parsing effort of the server, which
+ * matters when many agents share one server. 
+ * 
+ * Command layers: 
+ * Several motion classes can set joint commands in the same cycle, e.g. 
+ * KeyframeMotion for the whole body and LookAroundMotion for the head. 
+ * Without layers, the last set command wins, so the order of the calls 
+ * matters. Instead, each motion class can set its commands in its own layer, 
+ * e.g. setJointCommand(HEAD_LAYER, NeckYaw, ...). Every layer has a priority
+ * for each joint and a mask of the joints it may control. When the message is
+ * sent, the command of each joint is taken from the layer with the highest 
+ * priority, which has set a command for the joint in this cycle. So the calls 
+ * can be made in any order. The predefined layers are: 
+ * - BASE_LAYER (priority 0, all joints): used by the setters without a layer
+ * - HEAD_LAYER (priority 10, neck joints only): for head control
+ * - REFLEX_LAYER (priority 20, all joints): for reflexes and safety motions
+ * Further layers can be added with addLayer(...). 
+ * 
+ * Joint limits: 
+ * With setJointLimitGuard(...), the merged commands are limited before they 
+ * are sent, so that no joint runs into its limits or moves faster than its 
+ * maximum velocity, see class JointLimitGuard. This includes the joints, for 
+ * which no new command has been set, because they still execute the last 
+ * sent command. 
  *  
  */
 public class EffectorOutput {
 
   ServerCommunication sc;
 
-  HashMap<Integer, Double> jointCommands;
+  public static final int BASE_LAYER = 0;
+  public static final int HEAD_LAYER = 1;
+  public static final int REFLEX_LAYER = 2;
+  private static final int ALL_JOINTS = (1 << RobotConsts.JointsCount) - 1;
+  
+  // for each layer: name, commands, priority and mask of each joint, and the
+  // joints set since the last sending (bit i for joint i), replaced as a whole
+  // when a layer is added
+  private String[] layerNames = new String[0];
+  private double[][] layerCommands = new double[0][];
+  private int[][] layerPriorities = new int[0][];
+  private int[] layerMasks = new int[0];
+  private int[] layerSetJoints = new int[0];
+  // the merged commands of all layers
+  private final double[] jointCommands = new double[RobotConsts.JointsCount];
   String sayMessage;
+  private final AgentMessageEncoder encoder = new AgentMessageEncoder();
+  // the last command sent for each joint, which the joint still executes
+  private final double[] sentJointCommands = new double[RobotConsts.JointsCount];
+  // bit i is set, if a command for joint i has ever been sent
+  private int sentJoints;
+  private boolean deltaSuppression = false;
+  private JointLimitGuard guard;
+  private PerceptorInput guardInput;
+  private final double[] presentAngles = new double[RobotConsts.JointsCount];
   
   /**
    * Constructor.
@@ -54,8 +114,11 @@ public class EffectorOutput {
    */
   public EffectorOutput(ServerCommunication connectedServer) {
     sc = connectedServer;
-    jointCommands = new HashMap<>();
     sayMessage = null;           
+    addLayer("base", 0);
+    addLayer("head", 10);
+    setLayerMask(HEAD_LAYER, (1 << RobotConsts.NeckYaw) | (1 << RobotConsts.NeckPitch));
+    addLayer("reflex", 20);
   }
 
   /**
@@ -78,23 +141,201 @@ public class EffectorOutput {
    * @see Comment on this class.  
    */
   public void sendAgentMessage() {
-    StringBuilder builder = new StringBuilder();
-
+    int setJoints = mergeLayers();
+    if (guard != null)
+      setJoints = limitJoints(setJoints);
+    encoder.clear();
     for (int i = 0; i < RobotConsts.JointsCount; i++) {
-      if (jointCommands.containsKey(i))
-        builder.append('(').append(RobotConsts.getEffectorID(i)).append(' ')
-                .append(jointCommands.get(i)).append(')');
+      if ((setJoints & (1 << i)) != 0) {
+        double command = encoder.quantize(jointCommands[i]);
+        if (deltaSuppression && (sentJoints & (1 << i)) != 0 
+                && command == sentJointCommands[i])
+          continue;
+        sentJointCommands[i] = command;
+        sentJoints |= 1 << i;
+        encoder.writeJoint(i, command);
+      }
     }
     if (sayMessage != null)
-      builder.append("(say "+ sayMessage +")");
+      encoder.writeSay(sayMessage);
             
-    builder.append("(syn)");
+    encoder.writeSyn();
     
-    sc.sendAgentMessage(builder.toString());
-    jointCommands.clear();
+    sc.sendAgentMessage(encoder.getBuffer(), encoder.getLength());
+    for (int l = 0; l < layerSetJoints.length; l++)
+      layerSetJoints[l] = 0;
     sayMessage = null;
   }
 
+  /**
+   * Merges the commands of all layers into jointCommands, and returns the 
+   * joints set in any layer. 
+   */
+  private int mergeLayers() {
+    int setJoints = 0;
+    for (int l = 0; l < layerSetJoints.length; l++)
+      setJoints |= layerSetJoints[l] & layerMasks[l];
+    for (int i = 0; i < RobotConsts.JointsCount; i++) {
+      double command = 0;
+      int priority = Integer.MIN_VALUE;
+      for (int l = 0; l < layerCommands.length; l++) {
+        // conditional moves instead of branches
+        boolean set = ((layerSetJoints[l] & layerMasks[l]) >>> i & 1) != 0;
+        int p = set ? layerPriorities[l][i] : Integer.MIN_VALUE;
+        boolean higher = p > priority;
+        command = higher ? layerCommands[l][i] : command;
+        priority = higher ? p : priority;
+      }
+      jointCommands[i] = command;
+    }
+    return setJoints;
+  }
+
+  /**
+   * Limits the merged commands by the guard, and returns the joints, for 
+   * which commands have to be sent. 
+   */
+  private int limitJoints(int setJoints) {
+    PerceptorSnapshot snapshot = guardInput.getSnapshot();
+    double cycleLength = guardInput.getClock().getCycleLength();
+    for (int i = 0; i < RobotConsts.JointsCount; i++) {
+      // the perceived angles are one cycle old, see class JointPredictor
+      presentAngles[i] = snapshot.joint(i) + sentJointCommands[i] * cycleLength;
+      if ((setJoints & (1 << i)) == 0)
+        jointCommands[i] = sentJointCommands[i];
+    }
+    guard.apply(jointCommands, presentAngles, cycleLength);
+    for (int i = 0; i < RobotConsts.JointsCount; i++)
+      if (jointCommands[i] != sentJointCommands[i])
+        setJoints |= 1 << i;
+    return setJoints;
+  }
+
+  /**
+   * Sets a guard, which limits the joint commands before they are sent. 
+   * 
+   * The present angles of the joints are predicted from the perceived angles
+   * and the last sent commands, like by class JointPredictor. 
+   * 
+   * @param guard The guard, e.g. JointLimitGuard.create(), or null to send the
+   * commands without limits (default).
+   * @param percIn Perceptor input of the agent, for the joint angles and the 
+   * cycle length.
+   */
+  public void setJointLimitGuard(JointLimitGuard guard, PerceptorInput percIn) {
+    this.guard = guard;
+    guardInput = percIn;
+  }
+
+  /**
+   * Adds a command layer. 
+   * 
+   * See comment on this class for the usage of layers. 
+   * 
+   * @param name Name of the layer, see getLayer(...).
+   * @param priority Priority of the layer for all joints, higher priorities 
+   * win. For equal priorities the layer added first wins. 
+   * @return Number of the new layer, for the setters.
+   */
+  public int addLayer(String name, int priority) {
+    if (getLayer(name) >= 0)
+      throw new IllegalArgumentException("Layer " + name + " already exists");
+    int n = layerNames.length;
+    layerNames = Arrays.copyOf(layerNames, n + 1);
+    layerCommands = Arrays.copyOf(layerCommands, n + 1);
+    layerPriorities = Arrays.copyOf(layerPriorities, n + 1);
+    layerMasks = Arrays.copyOf(layerMasks, n + 1);
+    layerSetJoints = Arrays.copyOf(layerSetJoints, n + 1);
+    layerNames[n] = name;
+    layerCommands[n] = new double[RobotConsts.JointsCount];
+    layerPriorities[n] = new int[RobotConsts.JointsCount];
+    Arrays.fill(layerPriorities[n], priority);
+    layerMasks[n] = ALL_JOINTS;
+    return n;
+  }
+
+  /**
+   * Returns the number of a command layer. 
+   * 
+   * @param name Name of the layer, e.g. "base", "head" or "reflex".
+   * @return Number of the layer, or -1 if there is no layer with this name.
+   */
+  public int getLayer(String name) {
+    for (int l = 0; l < layerNames.length; l++)
+      if (layerNames[l].equals(name))
+        return l;
+    return -1;
+  }
+
+  /**
+   * Sets the priority of a command layer for a joint. 
+   * 
+   * @param layer Number of the layer.
+   * @param jointNo Index number of the hinge joint, as defined by the constants
+   * in class RobotConsts.
+   * @param priority Priority, higher priorities win.
+   */
+  public void setLayerPriority(int layer, int jointNo, int priority) {
+    layerPriorities[layer][jointNo] = priority;
+  }
+
+  /**
+   * Sets the joints, which a command layer may control. 
+   * 
+   * Commands of the layer for other joints are ignored. 
+   * 
+   * @param layer Number of the layer.
+   * @param jointMask Bit i is set, if the layer may control joint i, as 
+   * defined by the constants in class RobotConsts.
+   */
+  public void setLayerMask(int layer, int jointMask) {
+    layerMasks[layer] = jointMask & ALL_JOINTS;
+  }
+
+  /**
+   * Switches the suppression of unchanged joint commands on or off. 
+   * 
+   * When switched on, sendAgentMessage() does not send a joint command, which
+   * is equal to the last command sent for the same joint (after rounding to 
+   * the precision), because the joint still executes it. Default is off, so 
+   * all set commands are sent. 
+   * 
+   * @param on True to send only changed joint commands. 
+   */
+  public void setDeltaSuppression(boolean on) {
+    deltaSuppression = on;
+  }
+
+  /**
+   * Sets the precision of the sent joint commands. 
+   * 
+   * The commands are rounded to the given number of digits after the decimal
+   * point before they are sent. The default are 6 digits; 3 digits (1 
+   * milliradian per second) are enough for most movements. 
+   * 
+   * @param fractionDigits Number of digits after the decimal point, from 0 to 
+   * 9.
+   */
+  public void setPrecision(int fractionDigits) {
+    encoder.setFractionDigits(fractionDigits);
+  }
+
+  /**
+   * Returns the command, which a joint executes since the last 
+   * sendAgentMessage(). 
+   * 
+   * A joint executes a sent command until it gets a new one, so this is the 
+   * last command sent for the joint, not the one set for the next message. 
+   * 
+   * @param jointNo Index number of the hinge joint, as defined by the constants
+   * in class RobotConsts.
+   * @return Velocity in radians per second, as it has been sent (rounded to 
+   * the precision), 0 if no command has been sent.
+   */
+  public double getSentJointCommand(int jointNo) {
+    return sentJointCommands[jointNo];
+  }
+
   /**
    * Sets a joint command to be sent to the server. 
    * 
@@ -110,7 +351,24 @@ public class EffectorOutput {
    * @param command Velocity for the joint "motor", given in radians per second.
    */
   public void setJointCommand(int jointNo, double command){
-    jointCommands.put(jointNo, command);
+    setJointCommand(BASE_LAYER, jointNo, command);
+  }
+  
+  /**
+   * Sets a joint command in a command layer. 
+   * 
+   * Like setJointCommand(int, double), but the command is sent only, if no 
+   * layer with a higher priority for the joint sets a command for it. See 
+   * comment on this class. 
+   * 
+   * @param layer Number of the layer, e.g. HEAD_LAYER.
+   * @param jointNo Index number of the hinge joint, as defined by the constants
+   * in class RobotConsts.
+   * @param command Velocity for the joint "motor", given in radians per second.
+   */
+  public void setJointCommand(int layer, int jointNo, double command){
+    layerCommands[layer][jointNo] = command;
+    layerSetJoints[layer] |= 1 << jointNo;
   }
   
   /**
@@ -150,8 +408,23 @@ public class EffectorOutput {
    * @see util.RobotConsts#JointsCount
    */
   public void setAllJointCommands(double[] commands) {
-    for (int i = 0; i < RobotConsts.JointsCount; i++)
-      jointCommands.put(i, commands[i]);
+    setAllJointCommands(BASE_LAYER, commands);
+  }
+  
+  /**
+   * Sets joint commands for all joint effectors in a command layer. 
+   * 
+   * Like setAllJointCommands(double[]), but the commands are sent only for the
+   * joints, for which no layer with a higher priority sets a command. See 
+   * comment on this class. 
+   * 
+   * @param layer Number of the layer, e.g. REFLEX_LAYER.
+   * @param commands Holds 22 "motor" velocities, as for 
+   * setAllJointCommands(double[]).
+   */
+  public void setAllJointCommands(int layer, double[] commands) {
+    System.arraycopy(commands, 0, layerCommands[layer], 0, RobotConsts.JointsCount);
+    layerSetJoints[layer] = ALL_JOINTS;
   }
   
 }
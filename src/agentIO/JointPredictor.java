@@ -0,0 +1,98 @@
+package agentIO;
+
+import util.RobotConsts;
+
+/**
+ * Predicts the present angles of the hinge joints.
+ *
+ * The server sends the joint angles delayed by one simulation step: the
+ * angles in the actual message do not yet contain the movement caused by the
+ * commands sent in the last cycle. A controller, which compares them with its
+ * targets, would therefore react one cycle late and overshoot. This class
+ * adds the movement of the last cycle to the perceived angles:
+ *
+ * predicted angle = perceived angle + last sent velocity * cycle length
+ *
+ * The sent velocities are taken from EffectorOutput.getSentJointCommand(...),
+ * so they include the commands of all parts of the agent, and the commands
+ * which a joint still executes because no new one has been sent.
+ * The prediction error of the last cycle, i.e. the difference between the
+ * angle perceived now and the angle predicted one cycle before, shows where
+ * a joint did not move as commanded, e.g. because it reached its limit or is
+ * blocked.
+ *
+ * Call update() once per server cycle, after PerceptorInput.update() and
+ * before setting the new commands. Angles are in radians. Nothing is
+ * allocated.
+ */
+public class JointPredictor {
+
+  private final PerceptorInput percIn;
+  private final EffectorOutput effOut;
+  private final double[] predicted = new double[RobotConsts.JointsCount];
+  private final double[] error = new double[RobotConsts.JointsCount];
+  private long cycle = -1;
+
+  /**
+   * Constructor.
+   *
+   * @param percIn Perceptor input of the agent, must be updated in every
+   * cycle before update() of this class.
+   * @param effOut Effector output of the agent, which sends the commands.
+   */
+  public JointPredictor(PerceptorInput percIn, EffectorOutput effOut) {
+    this.percIn = percIn;
+    this.effOut = effOut;
+  }
+
+  /**
+   * Updates the prediction with the perceptor values of the actual cycle.
+   */
+  public void update() {
+    PerceptorSnapshot snapshot = percIn.getSnapshot();
+    // the error is known only if the prediction is from the last cycle
+    boolean consecutive = snapshot.cycle() == cycle + 1;
+    double cycleLength = percIn.getClock().getCycleLength();
+    for (int i = 0; i < RobotConsts.JointsCount; i++) {
+      double perceived = snapshot.joint(i);
+      error[i] = consecutive ? perceived - predicted[i] : 0;
+      predicted[i] = perceived + effOut.getSentJointCommand(i) * cycleLength;
+    }
+    cycle = snapshot.cycle();
+  }
+
+  /**
+   * Returns the predicted present angle of a joint.
+   *
+   * @param jointNo Index number of the hinge joint, as defined by the
+   * constants in class RobotConsts.
+   * @return Angle in radians.
+   */
+  public double getAngle(int jointNo) {
+    return predicted[jointNo];
+  }
+
+  /**
+   * Returns the predicted present angles of all joints.
+   *
+   * @param angles Array for the angles in radians, at least
+   * RobotConsts.JointsCount long, in the order of the constants in class
+   * RobotConsts.
+   */
+  public void getAngles(double[] angles) {
+    System.arraycopy(predicted, 0, angles, 0, RobotConsts.JointsCount);
+  }
+
+  /**
+   * Returns the angle, by which a joint missed the prediction of the last
+   * cycle.
+   *
+   * @param jointNo Index number of the hinge joint, as defined by the
+   * constants in class RobotConsts.
+   * @return Perceived angle minus predicted angle in radians, 0 if update()
+   * has not been called in the last cycle.
+   */
+  public double getPredictionError(int jointNo) {
+    return error[jointNo];
+  }
+}
@@ -0,0 +1,296 @@
+package agentIO;
+
+/**
+ * Estimates the orientation of the torso from the gyrometer and the
+ * accelerometer.
+ *
+ * The accelerometer alone tells the direction of gravity, and so whether the
+ * robot is upright, but only when the robot is not moving: steps and impacts
+ * add large accelerations. The gyrometer tells how fast the torso turns, but
+ * integrating it drifts. This class fuses both in every cycle with the filter
+ * of Sebastian Madgwick ("An efficient orientation filter for inertial and
+ * inertial/magnetic sensor arrays", 2010): the orientation is integrated from
+ * the gyrometer, and corrected by a small step towards the direction of
+ * gravity measured by the accelerometer. There is no magnetometer, so the
+ * yaw angle is not corrected and drifts slowly.
+ *
+ * The orientation is kept as a quaternion of doubles, and all results are
+ * computed from it with primitive math, so the estimator allocates nothing.
+ *
+ * Angles are given in the coordinate system of the torso: x-axis points to
+ * the robots right, y in front of the robot and z up.
+ * - pitch: rotation about the x-axis, positive when leaning forward
+ * - roll: rotation about the y-axis, positive when leaning to the right
+ * - yaw: rotation about the z-axis, positive when turning left
+ *
+ * PerceptorInput updates an estimator in every cycle, see
+ * PerceptorInput.getOrientation().
+ */
+public final class OrientationEstimator {
+
+  /** Default gain of the accelerometer correction, in radians per second. */
+  public static final double DEFAULT_GAIN = 0.1;
+  /** Server cycles longer than this are considered as gaps in the input. */
+  private static final double MAX_TIME_STEP = 0.1;
+  private static final double GRAVITY_MIN = 1;
+
+  private double gain = DEFAULT_GAIN;
+  // the orientation of the torso relative to the field, as quaternion
+  private double q0 = 1;
+  private double q1;
+  private double q2;
+  private double q3;
+  private boolean initialized;
+  private double lastTime;
+  // angular rate in radians per second
+  private double rateX;
+  private double rateY;
+  private double rateZ;
+
+  /**
+   * Sets the gain of the correction by the accelerometer.
+   *
+   * Higher values follow the accelerometer faster, but let steps and impacts
+   * shake the estimate. The default is DEFAULT_GAIN.
+   *
+   * @param gain Maximum rate of the correction in radians per second.
+   */
+  public void setGain(double gain) {
+    this.gain = gain;
+  }
+
+  /**
+   * Restarts the estimation. The next update takes the orientation directly
+   * from the accelerometer.
+   */
+  public void reset() {
+    initialized = false;
+    q0 = 1;
+    q1 = q2 = q3 = 0;
+    rateX = rateY = rateZ = 0;
+  }
+
+  /**
+   * Updates the orientation with the values of a new cycle.
+   *
+   * @param time Server time of the cycle in seconds.
+   * @param gyroX Gyrometer value about the x-axis, in degrees per second.
+   * @param gyroY Gyrometer value about the y-axis, in degrees per second.
+   * @param gyroZ Gyrometer value about the z-axis, in degrees per second.
+   * @param accX Accelerometer value along the x-axis.
+   * @param accY Accelerometer value along the y-axis.
+   * @param accZ Accelerometer value along the z-axis.
+   */
+  public void update(double time, double gyroX, double gyroY, double gyroZ,
+          double accX, double accY, double accZ) {
+    double gx = Math.toRadians(gyroX);
+    double gy = Math.toRadians(gyroY);
+    double gz = Math.toRadians(gyroZ);
+    rateX = gx;
+    rateY = gy;
+    rateZ = gz;
+
+    double accNorm = Math.sqrt(accX * accX + accY * accY + accZ * accZ);
+    double dt = time - lastTime;
+    lastTime = time;
+    if (!initialized || dt > MAX_TIME_STEP) {
+      if (accNorm >= GRAVITY_MIN) {
+        alignTo(accX / accNorm, accY / accNorm, accZ / accNorm);
+        initialized = true;
+      }
+      return;
+    }
+    if (dt <= 0)
+      return;
+
+    // rate of change of the quaternion from the gyrometer
+    double qDot0 = 0.5 * (-q1 * gx - q2 * gy - q3 * gz);
+    double qDot1 = 0.5 * (q0 * gx + q2 * gz - q3 * gy);
+    double qDot2 = 0.5 * (q0 * gy - q1 * gz + q3 * gx);
+    double qDot3 = 0.5 * (q0 * gz + q1 * gy - q2 * gx);
+
+    if (accNorm >= GRAVITY_MIN) {
+      double ax = accX / accNorm;
+      double ay = accY / accNorm;
+      double az = accZ / accNorm;
+      // gradient descent step, towards the measured direction of gravity
+      double _2q0 = 2 * q0;
+      double _2q1 = 2 * q1;
+      double _2q2 = 2 * q2;
+      double _2q3 = 2 * q3;
+      double _4q0 = 4 * q0;
+      double _4q1 = 4 * q1;
+      double _4q2 = 4 * q2;
+      double _8q1 = 8 * q1;
+      double _8q2 = 8 * q2;
+      double q0q0 = q0 * q0;
+      double q1q1 = q1 * q1;
+      double q2q2 = q2 * q2;
+      double q3q3 = q3 * q3;
+      double s0 = _4q0 * q2q2 + _2q2 * ax + _4q0 * q1q1 - _2q1 * ay;
+      double s1 = _4q1 * q3q3 - _2q3 * ax + 4 * q0q0 * q1 - _2q0 * ay - _4q1
+              + _8q1 * q1q1 + _8q1 * q2q2 + _4q1 * az;
+      double s2 = 4 * q0q0 * q2 + _2q0 * ax + _4q2 * q3q3 - _2q3 * ay - _4q2
+              + _8q2 * q1q1 + _8q2 * q2q2 + _4q2 * az;
+      double s3 = 4 * q1q1 * q3 - _2q1 * ax + 4 * q2q2 * q3 - _2q2 * ay;
+      double sNorm = Math.sqrt(s0 * s0 + s1 * s1 + s2 * s2 + s3 * s3);
+      if (sNorm > 0) {
+        qDot0 -= gain * s0 / sNorm;
+        qDot1 -= gain * s1 / sNorm;
+        qDot2 -= gain * s2 / sNorm;
+        qDot3 -= gain * s3 / sNorm;
+      }
+    }
+
+    q0 += qDot0 * dt;
+    q1 += qDot1 * dt;
+    q2 += qDot2 * dt;
+    q3 += qDot3 * dt;
+    normalize();
+  }
+
+  /**
+   * Updates the orientation with the values of a snapshot.
+   *
+   * @param snapshot Perceptor values of the new cycle.
+   */
+  public void update(PerceptorSnapshot snapshot) {
+    update(snapshot.serverTime,
+            snapshot.gyro[PerceptorSnapshot.X], snapshot.gyro[PerceptorSnapshot.Y],
+            snapshot.gyro[PerceptorSnapshot.Z],
+            snapshot.acc[PerceptorSnapshot.X], snapshot.acc[PerceptorSnapshot.Y],
+            snapshot.acc[PerceptorSnapshot.Z]);
+  }
+
+  /**
+   * Returns, whether an orientation has been estimated.
+   *
+   * @return False until the first accelerometer value has been received.
+   */
+  public boolean isValid() {
+    return initialized;
+  }
+
+  /**
+   * Returns the forward lean of the torso.
+   *
+   * @return Angle in radians from -PI to PI, positive when leaning forward,
+   * PI/2 when lying on the belly.
+   */
+  public double getPitch() {
+    return Math.atan2(-upY(), upZ());
+  }
+
+  /**
+   * Returns the sideward lean of the torso.
+   *
+   * @return Angle in radians from -PI/2 to PI/2, positive when leaning to the
+   * right.
+   */
+  public double getRoll() {
+    double uy = upY();
+    double uz = upZ();
+    return Math.atan2(-upX(), Math.sqrt(uy * uy + uz * uz));
+  }
+
+  /**
+   * Returns the rotation of the torso about the vertical axis, relative to
+   * the orientation at the start of the estimation. It is integrated from the
+   * gyrometer only, so it drifts.
+   *
+   * @return Angle in radians from -PI to PI, positive to the left.
+   */
+  public double getYaw() {
+    return Math.atan2(2 * (q0 * q3 + q1 * q2), 1 - 2 * (q2 * q2 + q3 * q3));
+  }
+
+  /**
+   * Returns the angle between the z-axis of the torso and the vertical,
+   * independent of the direction.
+   *
+   * @return Angle in radians from 0 (upright) to PI (upside down).
+   */
+  public double getTilt() {
+    return Math.acos(Math.max(-1, Math.min(1, upZ())));
+  }
+
+  /**
+   * Returns a component of the vertical unit vector (pointing up) in the
+   * coordinate system of the torso. This is the direction of gravity, as the
+   * accelerometer would measure it without any motion.
+   *
+   * @param axis PerceptorSnapshot.X, Y or Z.
+   * @return The component, from -1 to 1.
+   */
+  public double getUp(int axis) {
+    switch (axis) {
+      case PerceptorSnapshot.X:
+        return upX();
+      case PerceptorSnapshot.Y:
+        return upY();
+      case PerceptorSnapshot.Z:
+        return upZ();
+      default:
+        throw new IllegalArgumentException("No axis " + axis);
+    }
+  }
+
+  /**
+   * Returns the angular rate of the torso, as measured in the last cycle.
+   *
+   * @param axis PerceptorSnapshot.X, Y or Z.
+   * @return Rate in radians per second about the axis.
+   */
+  public double getRate(int axis) {
+    switch (axis) {
+      case PerceptorSnapshot.X:
+        return rateX;
+      case PerceptorSnapshot.Y:
+        return rateY;
+      case PerceptorSnapshot.Z:
+        return rateZ;
+      default:
+        throw new IllegalArgumentException("No axis " + axis);
+    }
+  }
+
+  private double upX() {
+    return 2 * (q1 * q3 - q0 * q2);
+  }
+
+  private double upY() {
+    return 2 * (q0 * q1 + q2 * q3);
+  }
+
+  private double upZ() {
+    return q0 * q0 - q1 * q1 - q2 * q2 + q3 * q3;
+  }
+
+  /**
+   * Sets the orientation, which turns the vertical onto the measured
+   * direction of gravity, with yaw 0.
+   */
+  private void alignTo(double ax, double ay, double az) {
+    if (az > -0.999999) {
+      q0 = 1 + az;
+      q1 = ay;
+      q2 = -ax;
+      q3 = 0;
+    } else {
+      // upside down
+      q0 = 0;
+      q1 = 1;
+      q2 = 0;
+      q3 = 0;
+    }
+    normalize();
+  }
+
+  private void normalize() {
+    double norm = Math.sqrt(q0 * q0 + q1 * q1 + q2 * q2 + q3 * q3);
+    q0 /= norm;
+    q1 /= norm;
+    q2 /= norm;
+    q3 /= norm;
+  }
+}
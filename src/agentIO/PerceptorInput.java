@@ -1,11 +1,17 @@
 package agentIO;
 
-import agentIO.perceptorInputUtil.PerceptorConversionException;
-import agentIO.perceptorInputUtil.SymbolNode;
-import agentIO.perceptorInputUtil.SymbolTreeParser;
+import agentIO.perceptorInputUtil.MalformedInputLog;
+import agentIO.perceptorInputUtil.PerceptorDecoder;
+import agentIO.perceptorInputUtil.PerceptorFingerprints;
+import agentIO.perceptorInputUtil.VectorValue;
 import agentIO.perceptors.*;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 import util.FieldConsts;
 import util.GameStateConsts;
@@ -19,8 +25,29 @@ import util.RobotConsts;
  * The get...-methods (like getJoint(...), getBall()) return the current 
  * perceptor values (see there for details and see also "Required context in the
  * agent class" below).
- * This class provides just immutable objects as return values. This ensures,
- * that other classes can not falsify the input from the server. 
+ * This class provides just immutable objects and read-only lists as return 
+ * values. This ensures, that other classes can not falsify the input from the
+ * server. 
+ * The values are stored in containers, which are reused in every cycle, so 
+ * update() creates no objects in the steady state. Objects like Vector3D or
+ * HearPerceptor (with the String of the message) are only created, when they
+ * are requested by a getter and their value has changed. The lists returned by the getters are views of these containers, 
+ * so they are valid only until the next call of update(). 
+ * The same values are also provided as primitive values by getSnapshot(), 
+ * for code which reads them many times per cycle, and the values of the 
+ * internal perceptors in the last cycles are kept by getHistory(). The 
+ * orientation of the torso is estimated from gyrometer and accelerometer, see
+ * getOrientation(), and the support state from the force resistance 
+ * perceptors, see getSupport(). The timing of the server cycles is 
+ * estimated from the server time and the local arrival time of the messages,
+ * see getClock(). 
+ * Instead of checking conditions on the values in every cycle, agents can 
+ * register listeners, which are called when a condition changes, see 
+ * addListener(...). 
+ * 
+ * All methods of this class must be called by the thread of the agent loop.
+ * Other threads read the perceptor values by a SnapshotReader, see 
+ * newSnapshotReader(). 
  * The getters for the vision perceptor values (getBall, getGoalPost, getFlag, getPlayerPositions, getLines) should not be used directly, use class localFieldView.LocalFieldView for that.
  * 
  * Required context in the agent class: 
@@ -40,23 +67,103 @@ import util.RobotConsts;
 public class PerceptorInput {
 
   private ServerCommunication com;
+  private int messageLength = -1;
+  // created only if requested by getServerMessage()
   private String message;
   
+  private final PerceptorSnapshot snapshot = new PerceptorSnapshot();
+  private final SensorHistory history;
+  private final OrientationEstimator orientation = new OrientationEstimator();
+  private final SupportEstimator support = new SupportEstimator();
+  private final ServerClock clock = new ServerClock();
+  /** Number of cycles kept by the history, if not given to the constructor. */
+  public static final int DEFAULT_HISTORY_LENGTH = 256;
+  // replaced as a whole, when a watch is added or removed
+  private PerceptorWatch[] watches = new PerceptorWatch[0];
+  private PerceptorListener[] listeners = new PerceptorListener[0];
+  // replaced as a whole, when a reader is added or removed
+  private volatile SnapshotReader[] snapshotReaders = new SnapshotReader[0];
+  
   private double serverTime;
+  private boolean gameStateReceived;
+  private double gameStatePlayTime;
+  private GameStateConsts.PlayMode gameStatePlayMode;
+  private String gameStatePlayModeName;
+  // created only if requested, and reset to null if the game state changes
   private GameStatePerceptor gameState;
   
-  private double[] hingeJoints = new double[RobotConsts.JointsCount];
-  private Vector3D gyro;
-  private Vector3D acc;
-  private ForceResistancePerceptor frLeft, frRight;
+  private final double[] hingeJoints = snapshot.joints;
+  private final VectorValue gyro = new VectorValue();
+  private final VectorValue acc = new VectorValue();
+  private final ForceResistanceValue frLeft = new ForceResistanceValue();
+  private final ForceResistanceValue frRight = new ForceResistanceValue();
+  
+  // The vision values are kept until the next See perceptor is decoded, 
+  // visionValid tells whether they belong to the actual cycle. So they are
+  // still there, if the next See perceptor is unchanged and not decoded.
+  private boolean visionValid;
+  private final VectorValue ball = new VectorValue();
+  private final VectorValue[] goals = newValues(FieldConsts.GoalPostID.values().length);
+  private final VectorValue[] flags = newValues(FieldConsts.FlagID.values().length);
+  private final ArrayList<LineValue> linePool = new ArrayList<>();
+  private int lineCount;
+  private final ArrayList<PlayerValue> playerPool = new ArrayList<>();
+  private int playerCount;
+  
+  private final List<LineVisionPerceptor> lineView = new AbstractList<LineVisionPerceptor>() {
+    @Override
+    public LineVisionPerceptor get(int index) {
+      if (index >= size())
+        throw new IndexOutOfBoundsException("Line " + index);
+      return linePool.get(index).get();
+    }
+
+    @Override
+    public int size() {
+      return visionValid ? lineCount : 0;
+    }
+  };
+  
+  private final List<PlayerVisionPerceptor> playerView = new AbstractList<PlayerVisionPerceptor>() {
+    @Override
+    public PlayerVisionPerceptor get(int index) {
+      if (index >= size())
+        throw new IndexOutOfBoundsException("Player " + index);
+      return playerPool.get(index).get();
+    }
+
+    @Override
+    public int size() {
+      return visionValid ? playerCount : 0;
+    }
+  };
+  
+  private final ArrayList<HearValue> hearPool = new ArrayList<>();
+  private int hearCount;
+  
+  private final List<HearPerceptor> hearView = new AbstractList<HearPerceptor>() {
+    @Override
+    public HearPerceptor get(int index) {
+      if (index >= size())
+        throw new IndexOutOfBoundsException("Hear " + index);
+      return hearPool.get(index).get();
+    }
+
+    @Override
+    public int size() {
+      return hearCount;
+    }
+  };
   
-  private Vector3D ball;
-  private LinkedList<LineVisionPerceptor> lines;
-  private LinkedList<PlayerVisionPerceptor> players;
-  private HashMap<FieldConsts.GoalPostID, Vector3D> goals;
-  private HashMap<FieldConsts.FlagID, Vector3D> flags;
+  private final MessageDecoder decoder = new MessageDecoder();
+  private final PerceptorFingerprints fingerprints = 
+          new PerceptorFingerprints(PerceptorDecoder.PERCEPTOR_COUNT);
   
-  private LinkedList<HearPerceptor> hears;
+  private static final int MALFORMED_SAMPLES = 16;
+  private static final int MALFORMED_SAMPLE_LENGTH = 256;
+  private final MalformedInputLog malformedInput = 
+          new MalformedInputLog(MALFORMED_SAMPLES, MALFORMED_SAMPLE_LENGTH);
+  private boolean validation = true;
   
   /**
    * Constructor.
@@ -66,16 +173,28 @@ public class PerceptorInput {
    * 
    */
   public PerceptorInput(ServerCommunication sc) {
+    this(sc, DEFAULT_HISTORY_LENGTH);
+  }
+  
+  /**
+   * Constructor.
+   * 
+   * @param connectedServer Cares for the connection to the server, so this
+   * parameter has to be already initialized before the constructor is called.
+   * @param historyLength Number of cycles kept by the history, see 
+   * getHistory().
+   */
+  public PerceptorInput(ServerCommunication sc, int historyLength) {
     com = sc;
-    gyro = null;
-    acc = null;
-    ball = null;
-    lines = null;
-    frLeft = null;
-    frRight = null;
-    players = null;
-    goals = null;
-    flags = null;
+    history = new SensorHistory(historyLength);
+    
+    // time and hear are events of the actual cycle, and the force resistance 
+    // perceptors are reset in every cycle, so they are always decoded
+    fingerprints.setEnabled(PerceptorDecoder.GS, true);
+    fingerprints.setEnabled(PerceptorDecoder.GYR, true);
+    fingerprints.setEnabled(PerceptorDecoder.ACC, true);
+    fingerprints.setEnabled(PerceptorDecoder.HJ, true);
+    fingerprints.setEnabled(PerceptorDecoder.SEE, true);
   }
   
   /** 
@@ -92,7 +211,7 @@ public class PerceptorInput {
    * accessible.
    */
   public Vector3D getGoalPost(FieldConsts.GoalPostID id){
-      return goals.get(id);
+      return visionValid ? goals[id.ordinal()].get() : null;
   }
   
   /** 
@@ -109,7 +228,7 @@ public class PerceptorInput {
    * accessible.
    */
   public Vector3D getFlag(FieldConsts.FlagID id){
-      return flags.get(id);
+      return visionValid ? flags[id.ordinal()].get() : null;
   }
   
   /**
@@ -125,7 +244,7 @@ public class PerceptorInput {
    * 
    */
   public ForceResistancePerceptor getFrLeft() {
-    return frLeft;
+    return frLeft.get();
   }
 
   /** 
@@ -140,7 +259,7 @@ public class PerceptorInput {
    * @return Force resistance data or null.
    */
   public ForceResistancePerceptor getFrRight(){
-    return frRight;
+    return frRight.get();
   }
   
   /** 
@@ -155,13 +274,24 @@ public class PerceptorInput {
    * 
    * If there has not been sent any message, the return is null.
    * 
-   * @return A list of hear perceptor, or null.
+   * @return A read-only list of hear perceptor, valid until the next update(),
+   * or null.
    */
-  public LinkedList<HearPerceptor> getHears() {
-    if (hears.isEmpty())
+  public List<HearPerceptor> getHears() {
+    if (hearCount == 0)
       return null;
     else 
-      return (LinkedList<HearPerceptor>)hears.clone();
+      return hearView;
+  }
+  
+  /**
+   * Returns the play mode of the game state, without creating a game state
+   * object.
+   * 
+   * @return The current play mode, or null if it is unknown.
+   */
+  public GameStateConsts.PlayMode getPlayMode() {
+    return gameStatePlayMode;
   }
   
   /**
@@ -170,6 +300,8 @@ public class PerceptorInput {
    * @return The current game state.
    */
   public GameStatePerceptor getGameState(){
+    if (gameStateReceived && gameState == null)
+      gameState = new GameStatePerceptor(gameStatePlayTime, gameStatePlayMode);
     return gameState;
   }
   
@@ -184,7 +316,7 @@ public class PerceptorInput {
    * accessible.
    */  
   public Vector3D getBall() {
-    return ball;
+    return visionValid ? ball.get() : null;
   }
   
   /**
@@ -197,14 +329,14 @@ public class PerceptorInput {
    * NOTE: The robot may also "see" its own body, especially its arms in the 
    * initial position (when its beamed on the field and has not moved yet).
    * 
-   * @return A list of player positions (coordinates in meters and radians) or 
-   * null.
+   * @return A read-only list of player positions (coordinates in meters and 
+   * radians), valid until the next update(), or null.
    */
-  public LinkedList<PlayerVisionPerceptor> getPlayerPositions(){
-    if (players.isEmpty())
+  public List<PlayerVisionPerceptor> getPlayerPositions(){
+    if (playerView.isEmpty())
       return null;
     else 
-      return (LinkedList<PlayerVisionPerceptor>)players.clone();
+      return playerView;
   }
   
   /** 
@@ -214,14 +346,14 @@ public class PerceptorInput {
    * This value is not accessible in every server cycle, see for details:
    * http://simspark.sourceforge.net/wiki/index.php/Perceptors#Vision_Perceptors
    * 
-   * @return A list of line positions (coordinates in meters and radians) or 
-   * null.
+   * @return A read-only list of line positions (coordinates in meters and 
+   * radians), valid until the next update(), or null.
    */
-  public LinkedList<LineVisionPerceptor> getLines() {
-    if (lines.isEmpty())
+  public List<LineVisionPerceptor> getLines() {
+    if (lineView.isEmpty())
       return null;
     else 
-      return (LinkedList<LineVisionPerceptor>)lines.clone();
+      return lineView;
   }
   
   /**
@@ -234,7 +366,7 @@ public class PerceptorInput {
    * @return The value of the gyrometer perceptor.
    */
   public Vector3D getGyro() {
-    return gyro;
+    return gyro.get();
   }
 
   /**
@@ -247,7 +379,7 @@ public class PerceptorInput {
    * @return The value of the accelerometer perceptor.
    */
   public Vector3D getAcc() {
-    return acc;
+    return acc.get();
   }
 
   /**
@@ -271,12 +403,162 @@ public class PerceptorInput {
     return serverTime;
   }
 
+  /**
+   * Returns the perceptor values of the actual cycle as primitive values. 
+   * 
+   * The snapshot is updated by update(), so the returned object is always the
+   * same one. See class PerceptorSnapshot.
+   * 
+   * @return The perceptor values as arrays of doubles.
+   */
+  public PerceptorSnapshot getSnapshot() {
+    return snapshot;
+  }
+
+  /**
+   * Returns the values of the internal perceptors in the last cycles. 
+   * 
+   * The joints, gyrometer, accelerometer, force resistance perceptors and the
+   * server time of every received server message are recorded, see class 
+   * SensorHistory.
+   * 
+   * @return The history, always the same object.
+   */
+  public SensorHistory getHistory() {
+    return history;
+  }
+  
+  /**
+   * Returns the estimated orientation of the torso. 
+   * 
+   * The estimation is updated in every update(), by fusing the values of 
+   * gyrometer and accelerometer, see class OrientationEstimator. Use it 
+   * instead of single accelerometer values to find out, whether the robot 
+   * leans or falls, e.g. getOrientation().getTilt() > Math.toRadians(45).
+   * 
+   * @return The estimator, always the same object.
+   */
+  public OrientationEstimator getOrientation() {
+    return orientation;
+  }
+  
+  /**
+   * Returns the estimated support state of the robot. 
+   * 
+   * The estimation is updated in every update() from the force resistance 
+   * perceptors in the feet: which feet carry the robot, the load ratio and 
+   * the center of pressure, see class SupportEstimator.
+   * 
+   * @return The estimator, always the same object.
+   */
+  public SupportEstimator getSupport() {
+    return support;
+  }
+  
+  /**
+   * Returns the model of the server cycle. 
+   * 
+   * The model is updated in every update() with the server time and the 
+   * local time, when the message has been received: cycle length, drift, 
+   * jitter and the expected arrival of the next message, see class 
+   * ServerClock. Use it instead of assuming 20 ms per cycle, e.g. 
+   * getClock().getTimeToNextCycle() tells how much time is left for thinking.
+   * 
+   * @return The model, always the same object.
+   */
+  public ServerClock getClock() {
+    return clock;
+  }
+  
+  /**
+   * Registers a listener for the changes of a value derived from the 
+   * perceptors. 
+   * 
+   * At the end of every update(), the watch observes its value, and if it has
+   * changed since the cycle before, the listener is called. See class 
+   * PerceptorWatch for the available watches, e.g. 
+   * percIn.addListener(PerceptorWatch.accBelow(PerceptorSnapshot.Z, 7, 1), listener);
+   * 
+   * @param watch The observed value, which must not be registered already.
+   * @param listener The listener called on changes.
+   */
+  public void addListener(PerceptorWatch watch, PerceptorListener listener) {
+    for (PerceptorWatch w : watches)
+      if (w == watch)
+        throw new IllegalArgumentException("Watch is already registered");
+    watches = Arrays.copyOf(watches, watches.length + 1);
+    watches[watches.length - 1] = watch;
+    listeners = Arrays.copyOf(listeners, listeners.length + 1);
+    listeners[listeners.length - 1] = listener;
+  }
+  
+  /**
+   * Removes a listener registered by addListener(...). 
+   * 
+   * @param watch The watch given to addListener(...).
+   */
+  public void removeListener(PerceptorWatch watch) {
+    for (int i = 0; i < watches.length; i++) {
+      if (watches[i] == watch) {
+        watches = remove(watches, i, new PerceptorWatch[watches.length - 1]);
+        listeners = remove(listeners, i, new PerceptorListener[listeners.length - 1]);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Creates a reader of the perceptor snapshots for another thread. 
+   * 
+   * From the next update() on, the snapshot of every cycle is published to
+   * the reader, until it is removed by removeSnapshotReader(...). This costs
+   * a copy of the snapshot per cycle and reader, but neither locks nor 
+   * allocations, and update() never waits for a reader. This method may be
+   * called from any thread.
+   * 
+   * @return A new reader, to be used by one thread only.
+   */
+  public synchronized SnapshotReader newSnapshotReader() {
+    SnapshotReader reader = new SnapshotReader();
+    SnapshotReader[] readers = Arrays.copyOf(snapshotReaders, snapshotReaders.length + 1);
+    readers[readers.length - 1] = reader;
+    snapshotReaders = readers;
+    return reader;
+  }
+  
+  /**
+   * Stops publishing snapshots to a reader. This method may be called from 
+   * any thread.
+   * 
+   * @param reader A reader created by newSnapshotReader().
+   */
+  public synchronized void removeSnapshotReader(SnapshotReader reader) {
+    SnapshotReader[] readers = snapshotReaders;
+    for (int i = 0; i < readers.length; i++) {
+      if (readers[i] == reader) {
+        snapshotReaders = remove(readers, i, new SnapshotReader[readers.length - 1]);
+        return;
+      }
+    }
+  }
+  
+  /**
+   * Copies an array without the element at index i into rest.
+   */
+  private static <T> T[] remove(T[] array, int i, T[] rest) {
+    System.arraycopy(array, 0, rest, 0, i);
+    System.arraycopy(array, i + 1, rest, i, rest.length - i);
+    return rest;
+  }
+
   /**
    * Returns the raw server message for debugging.
    * 
    * @return The current read server message.
    */
   public String getServerMessage() {
+    if (message == null && messageLength >= 0)
+      message = new String(com.getMessageBuffer(), 0, messageLength, StandardCharsets.UTF_8);
     return message;
   }
   
@@ -292,6 +574,36 @@ public class PerceptorInput {
     return builder.toString();
   }
 
+  /**
+   * Returns the record of malformed perceptors in the server messages. 
+   * 
+   * Malformed perceptors are skipped, and their values keep the state of the 
+   * last server cycle (or are absent, for values which are reset in every 
+   * cycle). In validation mode (see setValidation(...)) they are counted per 
+   * perceptor type, and the raw bytes of the most recent ones are kept. 
+   * Print the record for example when the agent has finished: 
+   * System.out.println(percIn.getMalformedInput());
+   * 
+   * @return Counters and samples of the malformed perceptors.
+   */
+  public MalformedInputLog getMalformedInput() {
+    return malformedInput;
+  }
+  
+  /**
+   * Switches the validation mode on or off. 
+   * 
+   * In validation mode, which is on by default, malformed perceptors are 
+   * recorded, see getMalformedInput(). Recording does not create objects or 
+   * strings, so it costs almost nothing even if every message is malformed. 
+   * Without validation, malformed perceptors are just skipped.
+   * 
+   * @param on True to record malformed perceptors.
+   */
+  public void setValidation(boolean on) {
+    validation = on;
+  }
+
   /**
    * Receives the server message and parses it to provide the perceptor values.
    * 
@@ -303,573 +615,476 @@ public class PerceptorInput {
    * the current values during the actual server cycle. update() 
    * guarantees actual values, only if it is executed in each cycle.
    * 
+   * Call this method before reading any value: the lists returned by the 
+   * getters are views of internal containers, which are overwritten by 
+   * update().
+   * 
    * About parsing internals: 
-   * The server message is here transformed from a character sequence into a 
-   * symbol tree. Other specialized internal methods read the informations from 
-   * the tree leaves into the variables of PerceptorInput.
+   * The server message is decoded directly from its bytes by the class
+   * PerceptorDecoder, which is generated from the file 
+   * tools/perceptors.schema during the build. The decoder calls the methods
+   * of the internal class MessageDecoder, which read the decoded values into 
+   * the variables of PerceptorInput.
+   * Perceptors, which are byte-identical to the last perceptor of the same 
+   * type and position (e.g. the game state or the joints of a robot standing
+   * still), are not decoded again, see class PerceptorFingerprints. The 
+   * values decoded before are kept for them. 
    */
   public void update() {
-    message = com.getServerMessage();
+    messageLength = com.receiveServerMessage();
+    long arrivalNanos = System.nanoTime();
+    message = null;
     
-    frLeft = null;
-    frRight = null;
+    frLeft.clear();
+    frRight.clear();
+    snapshot.forceBits = 0;
+    visionValid = false;
+    hearCount = 0;
     
-    ball = null;
-    lines = new LinkedList<>();
-    players = new LinkedList<>();
-    goals = new HashMap<>();
-    flags = new HashMap<>();
+    if (messageLength >= 0) {
+      fingerprints.beginMessage();
+      decoder.decode(com.getMessageBuffer(), 0, messageLength);
+      history.record(snapshot);
+      orientation.update(snapshot);
+      support.update(snapshot);
+      clock.update(snapshot.serverTime, arrivalNanos);
+    }
+    // else nothing to do, might happen at disconnection
     
-    hears = new LinkedList<>();
+    snapshot.vision = visionValid;
+    snapshot.cycle++;
+    for (SnapshotReader reader : snapshotReaders)
+      reader.publish(snapshot);
     
-    if (message == null) {
-      // nothing to do, might happen at disconnection
-      return;
-    }
-
-    SymbolTreeParser treeParser = new SymbolTreeParser();
-    SymbolNode messageRoot = treeParser.parse(message);
-
-    for (int i = 0; i < messageRoot.children.length; i++) {
-      Object node = messageRoot.children[i];
-
-      try {
-        parseNode((SymbolNode) node);
-      } catch (PerceptorConversionException ex) {
-        ex.printStackTrace();
-      }
-    }
+    // local copies, as listeners may add or remove listeners
+    PerceptorWatch[] w = watches;
+    PerceptorListener[] l = listeners;
+    for (int i = 0; i < w.length; i++)
+      if (w[i].update(this))
+        l[i].changed(this, w[i]);
+  }
+  
+  /**
+   * Marks the vision values as belonging to the actual cycle, and removes the
+   * values of the last See perceptor.
+   */
+  private void clearVision() {
+    ball.clear();
+    for (VectorValue v : goals)
+      v.clear();
+    for (VectorValue v : flags)
+      v.clear();
+    lineCount = 0;
+    playerCount = 0;
+    snapshot.seenBits = 0;
+    visionValid = true;
   }
 
   /**
-   * Internal method for parsing the server message. 
+   * Internal class for parsing the server message. 
    * 
    * Perceptor values have a different structure for every type of 
    * information, e.g. the hinge joints have just one angle value but the ball
-   * needs a 3D-vector. So the symbol tree, that contains the actual server
-   * message has differently structured leaves.
-   * This method decides, which specialized parsing method will deal with the 
-   * passed information type. 
-   * 
-   * @param node The root of a part of a server message. 
-   * @throws PerceptorConversionException 
-   */
-  private void parseNode(SymbolNode node)
-          throws PerceptorConversionException {
-    /*
-     * Check message type
-     */
-    Object child = node.children[0];
-
-    if (child == null || !(child instanceof String)) {
-      throw new PerceptorConversionException("Malformed node: "
-              + node.toString());
+   * needs a 3D-vector. The generated superclass knows this structure from the
+   * perceptor schema, and calls the on...-methods here, after it has read the
+   * values of a perceptor into its fields. These methods convert the values
+   * and store them in the variables of PerceptorInput. 
+   */
+  private class MessageDecoder extends PerceptorDecoder {
+    
+    private static final int SEEN_OTHER = 0;
+    private static final int SEEN_BALL = 1;
+    private static final int SEEN_LINE = 2;
+    private static final int SEEN_PLAYER = 3;
+    private static final int SEEN_GOAL = 4;
+    private static final int SEEN_FLAG = 5;
+    
+    private final byte[][] jointIDs = new byte[RobotConsts.JointsCount][];
+    private final FieldConsts.GoalPostID[] goalPosts = FieldConsts.GoalPostID.values();
+    private final FieldConsts.FlagID[] flagValues = FieldConsts.FlagID.values();
+    private final byte[][] goalIDs = names(goalPosts);
+    private final byte[][] flagIDs = names(flagValues);
+    private final byte[][] bodyPartIDs = names(RobotConsts.BodyPartName.values());
+    private final byte[] leftFoot = ascii("lf");
+    private final byte[] rightFoot = ascii("rf");
+    private final byte[] self = ascii("self");
+    private final byte[] seenBall = ascii("B");
+    private final byte[] seenLine = ascii("L");
+    private final byte[] seenPlayer = ascii("P");
+    
+    // the actually decoded object of the vision perceptor
+    private int seenKind;
+    private int seenIndex;
+    private LineValue line;
+    private PlayerValue player;
+
+    MessageDecoder() {
+      for (int i = 0; i < RobotConsts.JointsCount; i++)
+        jointIDs[i] = ascii(RobotConsts.getPerceptorID(i));
+    }
+    
+    @Override
+    protected void onTime() {
+      PerceptorInput.this.serverTime = serverTime;
+      snapshot.serverTime = serverTime;
     }
 
-    String type = (String) child;
-
-    	/* Hinge joint perceptor*/
-		if (type.equals("HJ"))
-			parseHingeJoint(node);
-
-		/* Time perceptor */
-		if (type.equals("time"))
-            parseTime(node);
-
-        /* Force resistance perceptor */
-		if (type.equals("FRP"))
-			parseForceResistance(node);
-
-		/* Gyro perceptor*/
-		if (type.equals("GYR"))
-			parseGyro(node);
+    @Override
+    protected void onGameState() {
+      GameStateConsts.PlayMode playMode = null;
+      String name = null;
+      if (playModeLength >= 0) {
+        name = intern(playModeStart, playModeLength, gameStatePlayModeName);
+        playMode = name == gameStatePlayModeName ? gameStatePlayMode 
+                : GameStateConsts.getPlayMode(name);
+      }
+      if (!gameStateReceived || playTime != gameStatePlayTime || playMode != gameStatePlayMode)
+        gameState = null;
+      gameStateReceived = true;
+      gameStatePlayTime = playTime;
+      gameStatePlayMode = playMode;
+      gameStatePlayModeName = name;
+    }
 
-		/* Accelerometer perceptor*/
-		if (type.equals("ACC"))
-			parseAcc(node);
+    @Override
+    protected void onGyro() {
+      gyro.set(gyroX, gyroY, gyroZ);
+      PerceptorSnapshot.set(snapshot.gyro, 0, gyroX, gyroY, gyroZ);
+    }
 
-		/* Vision perceptor */
-		if (type.equals("See"))
-			parseVision(node);
+    @Override
+    protected void onAcc() {
+      // seems that the server sometimes sends NAN, in which case we ignore
+      // the reading for accelerometer
+      if (Double.isNaN(accX) || Double.isNaN(accY) || Double.isNaN(accZ))
+        return;
+      acc.set(accX, accY, accZ);
+      PerceptorSnapshot.set(snapshot.acc, 0, accX, accY, accZ);
+    }
 
-		/* Hear perceptor */
-		if (type.equals("hear"))
-			parseHear(node);
-        
-        /* GameState perceptor */
-		if (type.equals("GS"))
-			parseGameState(node);
+    @Override
+    protected void onHingeJoint() {
+      for (int i = 0; i < RobotConsts.JointsCount; i++) {
+        if (in.equals(jointNameStart, jointNameLength, jointIDs[i])) {
+          if (!Double.isNaN(jointAngle))
+            hingeJoints[i] = Math.toRadians(jointAngle);
+          return;
+        }
+      }
+    }
 
-  }
+    @Override
+    protected void onForceResistance() {
+      // read FRP-values, getrennt nach links und rechts
+      ForceResistanceValue fr;
+      int foot;
+      if (in.equals(frNameStart, frNameLength, leftFoot)) {
+        fr = frLeft;
+        foot = PerceptorSnapshot.LEFT_FOOT;
+      }
+      else if (in.equals(frNameStart, frNameLength, rightFoot)) {
+        fr = frRight;
+        foot = PerceptorSnapshot.RIGHT_FOOT;
+      }
+      else
+        return;
+      fr.origin.set(frOriginX, frOriginY, frOriginZ);
+      fr.force.set(frForceX, frForceY, frForceZ);
+      PerceptorSnapshot.set(snapshot.forceOrigin, foot * 3, frOriginX, frOriginY, frOriginZ);
+      PerceptorSnapshot.set(snapshot.force, foot * 3, frForceX, frForceY, frForceZ);
+      snapshot.forceBits |= 1 << foot;
+    }
 
-  /**
-   * Internal method for parsing the server message. 
-   * 
-   * @param node The root of the part of a server message, that contains data
-   * from the vision perceptor. 
-   * @throws PerceptorConversionException 
-   */
-  private void parseVision(SymbolNode node)
-          throws PerceptorConversionException {
+    @Override
+    protected void onHear() {
+      // "self"-messages are omitted
+      if (in.equals(hearDirectionStart, hearDirectionLength, self))
+        return;
+      double direction = in.parseReal(hearDirectionStart, hearDirectionLength);
+      if (hearCount == hearPool.size())
+        hearPool.add(new HearValue());
+      hearPool.get(hearCount++).set(hearTime, direction, 
+              in.getBuffer(), hearMessageStart, hearMessageLength);
+    }
 
-    // Sanity checks
-    if (node.children.length == 0) {
-      throw new PerceptorConversionException("Malformed Node: "
-              + node.toString());
+    @Override
+    protected void onSeenObjectOpen() {
+      // the first object of a new See perceptor
+      if (!visionValid)
+        clearVision();
+      
+      if (in.equals(seenObjectStart, seenObjectLength, seenBall))
+        seenKind = SEEN_BALL;
+      else if (in.equals(seenObjectStart, seenObjectLength, seenLine)) {
+        seenKind = SEEN_LINE;
+        if (lineCount == linePool.size())
+          linePool.add(new LineValue());
+        line = linePool.get(lineCount);
+        line.clear();
+      }
+      else if (in.equals(seenObjectStart, seenObjectLength, seenPlayer)) {
+        seenKind = SEEN_PLAYER;
+        if (playerCount == playerPool.size())
+          playerPool.add(new PlayerValue());
+        player = playerPool.get(playerCount);
+        player.clear();
+      }
+      else if ((seenIndex = indexOf(goalIDs, seenObjectStart, seenObjectLength)) >= 0)
+        seenKind = SEEN_GOAL;
+      else if ((seenIndex = indexOf(flagIDs, seenObjectStart, seenObjectLength)) >= 0)
+        seenKind = SEEN_FLAG;
+      else
+        seenKind = SEEN_OTHER;
     }
 
-    try {
-      // Parse visible objects
-      for (int i = 1; i < node.children.length; i++) {
-        Object subitem = node.children[i];
+    @Override
+    protected void onSeenObjectPolar() {
+      switch (seenKind) {
+        case SEEN_BALL:
+          setPolar(ball);
+          snapshot.setSeen(PerceptorSnapshot.BALL, polDistance, polAzimuth, polElevation);
+          break;
+        case SEEN_LINE:
+          if (line.points == 0)
+            setPolar(line.start);
+          else
+            setPolar(line.end);
+          line.points++;
+          break;
+        case SEEN_PLAYER:
+          // the body part of a player, as sent by older servers
+          setPolar(player.parts[PlayerValue.UNNAMED_PART]);
+          break;
+        case SEEN_GOAL:
+          setPolar(goals[seenIndex]);
+          snapshot.setSeen(PerceptorSnapshot.goalPostIndex(goalPosts[seenIndex]), 
+                  polDistance, polAzimuth, polElevation);
+          break;
+        case SEEN_FLAG:
+          setPolar(flags[seenIndex]);
+          snapshot.setSeen(PerceptorSnapshot.flagIndex(flagValues[seenIndex]), 
+                  polDistance, polAzimuth, polElevation);
+          break;
+      }
+    }
 
-        if (subitem instanceof SymbolNode) {
-          SymbolNode subnode = (SymbolNode) subitem;
+    @Override
+    protected void onBodyPartPolar() {
+      // in case of seeing parts of a player, we have to look into them
+      if (seenKind != SEEN_PLAYER)
+        return;
+      int part = indexOf(bodyPartIDs, bodyPartStart, bodyPartLength);
+      setPolar(player.parts[part >= 0 ? part : PlayerValue.UNNAMED_PART]);
+    }
 
-          // Player object?
-          if (!(subnode.children[0] instanceof String)) {
-            throw new PerceptorConversionException(
-                    "Malformed Node, empty name: " + node.toString());
-          } else if (subnode.children[0].equals("P"))
-            players.add(parsePlayer((SymbolNode) subnode));
-          else if (subnode.children[0].equals("L"))
-            lines.add( parseLine((SymbolNode) subnode));
-          else if (subnode.children[0].equals("B")) {
-            ball = parsePolar((SymbolNode) subnode.children[1]);
-          }
-          else if (subnode.children[0].toString().startsWith("G")){
-            FieldConsts.GoalPostID id = FieldConsts.getGoalPostID(subnode.children[0].toString());
-            goals.put(id, parsePolar((SymbolNode) subnode.children[1]));
-          }
-          else if (subnode.children[0].toString().startsWith("F")){
-            FieldConsts.FlagID id = FieldConsts.getFlagID(subnode.children[0].toString());
-            flags.put(id, parsePolar((SymbolNode) subnode.children[1]));
-          }
-        }
+    @Override
+    protected void onSeenObject() {
+      if (seenKind == SEEN_PLAYER) {
+        player.team = intern(playerTeamStart, playerTeamLength, player.team);
+        player.id = intern(playerIDStart, playerIDLength, player.id);
+        playerCount++;
       }
-    } catch (IndexOutOfBoundsException e) {
-      throw new PerceptorConversionException("Malformed node: "
-              + node.toString());
-    }
-  }
-  
-  /**
-   * Internal method for parsing the server message. 
-   * 
-   * @param node
-   * @return Internal used value.
-   * @throws PerceptorConversionException 
-   */
-  private PlayerVisionPerceptor parsePlayer(SymbolNode node)
-			throws PerceptorConversionException
-	{
-		try {
-			/* Parse content */
-            String teamName = null;
-            String id = null;
-			HashMap<String, Vector3D> bodyPartMap = new HashMap<>();
-
-			for (int i = 1; i < node.children.length; i++) {
-				if (!(node.children[i] instanceof SymbolNode)) {
-					throw new PerceptorConversionException("Malformed node: "
-							+ node.toString());
-				}
-
-				SymbolNode param = (SymbolNode) node.children[i];
-
-				if (param.children[0].equals("team")) {
-					teamName = (String) param.children[1];
-				} else if (param.children[0].equals("id")) {
-					id = (String) param.children[1];
-				} else {
-                    String partName = null;
-                    Vector3D coords;
-					// in case of seeing parts of opponent, we have to look into them
-					if (!param.children[0].equals("pol")) {
-						partName = (String) param.children[0];
-						param = (SymbolNode) param.children[1];
-					}
-
-					if (param.children[0].equals("pol")) {
-						coords = parsePolar(param);
-						bodyPartMap.put(partName, coords);
-					}
-				}
-			}
-
-			return new PlayerVisionPerceptor(teamName, id, bodyPartMap);
-		} catch (IndexOutOfBoundsException e) {
-			throw new PerceptorConversionException("Malformed node: "
-					+ node.toString());
-		}
-  }
-  
-  /**
-   * Internal method for parsing the server message. 
-   * 
-   * @param node
-   * @return Internal used value.
-   * @throws PerceptorConversionException 
-   */
-  private LineVisionPerceptor parseLine(SymbolNode node)
-			throws PerceptorConversionException
-	{
-		try {
-			assert node.children.length == 3 : "Malformed node";
-			assert node.children[1] instanceof SymbolNode : "Malformed node: "
-					+ node.toString();
-			assert node.children[2] instanceof SymbolNode : "Malformed node: "
-					+ node.toString();
-
-			Vector3D pol1 = parsePolar((SymbolNode) node.children[1]);
-			Vector3D pol2 = parsePolar((SymbolNode) node.children[2]);
-
-			return new LineVisionPerceptor(pol1, pol2);
-		} catch (IndexOutOfBoundsException e) {
-			throw new PerceptorConversionException("Malformed node: "
-					+ node.toString());
-		}
-	}
-  
-  /**
-   * Internal method for parsing the server message. 
-   * 
-   * @param node
-   * @return Internal used value.
-   * @throws PerceptorConversionException 
-   */
-  private Vector3D parsePolar(SymbolNode node)
-          throws PerceptorConversionException
-  {
-    double distance, azimuth, elevation;
-    try {
-            if (node.children.length != 4)
-                    throw new PerceptorConversionException("Malformed node: "
-                                    + node.toString());
-            if (!node.children[0].equals("pol"))
-                    throw new PerceptorConversionException("Expecting a pol object: "
-                                    + node.toString());
-
-            distance    = Double.parseDouble((String) node.children[1]);
-            azimuth     = Double.parseDouble((String) node.children[2]);
-            elevation   = Double.parseDouble((String) node.children[3]);
-            
-            return new Vector3D(distance, 
-                    new Vector3D(Math.toRadians(azimuth), Math.toRadians(elevation)));
-            
-    } catch (IndexOutOfBoundsException e) {
-            throw new PerceptorConversionException("Malformed node: "
-                            + node.toString());
-
-    } catch (NumberFormatException e) {
-            // seems that the server sometimes sends NAN, in which case we ignore
-            // the reading for position
-            e.printStackTrace();
-    }
-    return null;
-  }
-  
-  /**   
-   * Internal method for parsing the server message. 
-   * 
-   * @param node
-   * @throws PerceptorConversionException 
-   */
-  private void parseHingeJoint(SymbolNode node)
-          throws PerceptorConversionException {
-    try {
-      // if (!(node.children[1] instanceof SymbolNode)
-      // || !(node.children[2] instanceof SymbolNode))
-      // throw new PerceptorConversionException("Malformed Message: "
-      // + node.toString());
-
-      /*
-       * Check content
-       */
-      SymbolNode idNode = (SymbolNode) node.children[1];
-      SymbolNode rotationNode = (SymbolNode) node.children[2];
-
-      // if (!((String) nameNode.children[0]).equals("n"))
-      // throw new PerceptorConversionException("Malformed Message: "
-      // + node.toString() + ": name expected");
-      //
-      // if (!((String) rotationNode.children[0]).equals("ax"))
-      // throw new PerceptorConversionException("Malformed Message: "
-      // + node.toString() + ": axis expected");
-
-      hingeJoints[RobotConsts.getPerceptorIndex((String) idNode.children[1])] = 
-              Math.toRadians(Double.valueOf((String) rotationNode.children[1]));
-    } catch (IndexOutOfBoundsException e) {
-      throw new PerceptorConversionException("Malformed node: " + node.toString());
-    }
-  }
-
-  /**
-   * Internal method for parsing the server message. 
-   *
-   * @param node Symbol tree node
-   * @throws PerceptorConversionException If the input string contains illegal
-   * data which cannot be converted
-   */
-  private void parseTime(SymbolNode node)
-          throws PerceptorConversionException {
-    // Sanity check
-    if (node.children.length != 2
-            || !(node.children[1] instanceof SymbolNode)) {
-      throw new PerceptorConversionException("Malformed time node: "
-              + node.toString());
+      else if (seenKind == SEEN_LINE && line.start.isValid() && line.end.isValid())
+        lineCount++;
     }
 
-    // Sub-node sanity check
-    SymbolNode timeNode = (SymbolNode) node.children[1];
-    if (timeNode.children.length != 2 || timeNode.children[1].equals("now")) {
-      throw new PerceptorConversionException("Malformed time sub-node: "
-              + timeNode.toString());
+    @Override
+    protected int unchangedLength(int perceptor, int start) {
+      int length = fingerprints.unchangedLength(perceptor, in.getBuffer(), start, in.getLimit());
+      if (length > 0 && perceptor == SEE)
+        // the vision values of this See perceptor are still there
+        visionValid = true;
+      return length;
     }
 
-    try {
-      // Sanity checks
-      serverTime = Double.parseDouble((String) timeNode.children[1]);
+    @Override
+    protected void onDecoded(int perceptor, int start, int end) {
+      fingerprints.store(perceptor, in.getBuffer(), start, end);
+      if (perceptor == SEE && !visionValid)
+        // a See perceptor without any object
+        clearVision();
+    }
 
-    } catch (Exception e) {
-      throw new PerceptorConversionException(
-              "Malformed time node, conversion error: " + node.toString());
+    @Override
+    protected void onMalformed(int perceptor, int start, int end) {
+      if (perceptor != UNKNOWN_PERCEPTOR)
+        // the values may have been partially overwritten
+        fingerprints.forget(perceptor);
+      if (validation)
+        malformedInput.record(perceptor, in.getBuffer(), start, end);
+    }
+    
+    private void setPolar(VectorValue value) {
+      value.setPolar(polDistance, polAzimuth, polElevation);
+    }
+    
+    private int indexOf(byte[][] names, int start, int length) {
+      for (int i = 0; i < names.length; i++)
+        if (in.equals(start, length, names[i]))
+          return i;
+      return -1;
+    }
+    
+    /**
+     * Returns a range of the message as String, without creating a new String
+     * if it equals the previous value.
+     */
+    private String intern(int start, int length, String previous) {
+      if (previous != null && in.equals(start, length, previous))
+        return previous;
+      return in.string(start, length);
     }
   }
-
+  
   /**
-   * Internal method for parsing the server message. 
-   *
-   * Parse a symbol tree node into a gyro perceptor value.
-   *
-   * @param node Symbol tree node
-   * @throws PerceptorConversionException If the input string contains illegal
-   * data which cannot be converted
-   */
-  private void parseGyro(SymbolNode node)
-          throws PerceptorConversionException {
-    if (!(node.children[1] instanceof SymbolNode)
-            || !(node.children[2] instanceof SymbolNode)) {
-      throw new PerceptorConversionException("Malformed Message: "
-              + node.toString());
-    }
-
-    try {
-      /*
-       * Check content
-       */
-      SymbolNode rotationNode = (SymbolNode) node.children[2];
-
-      if (!rotationNode.children[0].equals("rt")) {
-        throw new PerceptorConversionException("rotation expected: "
-                + node.toString());
-      }
-      gyro = new Vector3D(Double.valueOf((String) rotationNode.children[1]),
-              Double.valueOf((String) rotationNode.children[2]),
-              Double.valueOf((String) rotationNode.children[3]));
-    } catch (IndexOutOfBoundsException e) {
-      throw new PerceptorConversionException("Malformed node: "
-              + node.toString());
+   * Value of a force resistance perceptor, reused in every cycle. 
+   */
+  private static final class ForceResistanceValue {
+    final VectorValue origin = new VectorValue();
+    final VectorValue force = new VectorValue();
+    private ForceResistancePerceptor perceptor;
+    
+    void clear() {
+      origin.clear();
+      force.clear();
+    }
+    
+    ForceResistancePerceptor get() {
+      if (!force.isValid())
+        return null;
+      Vector3D o = origin.get();
+      Vector3D f = force.get();
+      if (perceptor == null || perceptor.getOrigin() != o || perceptor.getForce() != f)
+        perceptor = new ForceResistancePerceptor(o, f);
+      return perceptor;
     }
   }
-
+  
   /**
-   * Internal method for parsing the server message. 
-   *
-   * Parse a symbol tree node into a accelerometer perceptor value.
-   *
-   * @param node Symbol tree node
-   * @throws PerceptorConversionException If the input string contains illegal
-   * data which cannot be converted
-   */
-  private void parseAcc(SymbolNode node)
-          throws PerceptorConversionException {
-    if (!(node.children[1] instanceof SymbolNode)
-            || !(node.children[2] instanceof SymbolNode)) {
-      throw new PerceptorConversionException("Malformed Message: "
-              + node.toString());
-    }
-
-    try {
-      /*
-       * Check content
-       */
-      SymbolNode accelerationNode = (SymbolNode) node.children[2];
-
-      if (!accelerationNode.children[0].equals("a")) {
-        throw new PerceptorConversionException("rotation expected: "
-                + node.toString());
-      }
-
-      acc = new Vector3D(Double.valueOf((String) accelerationNode.children[1]),
-              Double.valueOf((String) accelerationNode.children[2]),
-              Double.valueOf((String) accelerationNode.children[3]));
-
-    } catch (NumberFormatException e) {
-      // seems that the server sometimes sends NAN, in which case we ignore
-      // the reading for accelerometer
-      e.printStackTrace();
-
-    } catch (IndexOutOfBoundsException e) {
-      throw new PerceptorConversionException("Malformed node: "
-              + node.toString());
+   * Value of a seen line, reused in every cycle. 
+   */
+  private static final class LineValue {
+    final VectorValue start = new VectorValue();
+    final VectorValue end = new VectorValue();
+    int points;
+    private LineVisionPerceptor perceptor;
+    
+    void clear() {
+      start.clear();
+      end.clear();
+      points = 0;
+    }
+    
+    LineVisionPerceptor get() {
+      Vector3D s = start.get();
+      Vector3D e = end.get();
+      if (perceptor == null || perceptor.getStart() != s || perceptor.getEnd() != e)
+        perceptor = new LineVisionPerceptor(s, e);
+      return perceptor;
     }
   }
   
   /**
-   * Internal method for parsing the server message. 
-   *
-   * Parse a symbol tree node into a force resistance perceptor value.
-   *
-   * @param node Symbol tree node
-   * @throws PerceptorConversionException If the input string contains illegal
-   * data which cannot be converted
-   */
-  private void parseForceResistance(SymbolNode node)
-          throws PerceptorConversionException {
-    try {
-      // Sanity checks
-      if (!(node.children[1] instanceof SymbolNode)
-              || !(node.children[2] instanceof SymbolNode)
-              | !(node.children[3] instanceof SymbolNode)) {
-        throw new PerceptorConversionException("Malformed Message: "
-                + node.toString());
-      }
-      /*
-       * Check content
-       */
-      SymbolNode nameNode = (SymbolNode) node.children[1];
-      SymbolNode originNode = (SymbolNode) node.children[2];
-      SymbolNode forceNode = (SymbolNode) node.children[3];
-
-      if (!nameNode.children[0].equals("n")) {
-        throw new PerceptorConversionException("name expected: "
-                + node.toString());
-      }
-      if (!originNode.children[0].equals("c")) {
-        throw new PerceptorConversionException("origin expected: "
-                + node.toString());
-      }
-      if (!forceNode.children[0].equals("f")) {
-        throw new PerceptorConversionException("force expected: "
-                + node.toString());
+   * Value of a seen player, reused in every cycle. 
+   */
+  private static final class PlayerValue {
+    private static final RobotConsts.BodyPartName[] PARTS = RobotConsts.BodyPartName.values();
+    /** Index of a body part without a known name. */
+    static final int UNNAMED_PART = PARTS.length;
+    
+    String team;
+    String id;
+    final VectorValue[] parts = newValues(PARTS.length + 1);
+    private PlayerVisionPerceptor perceptor;
+    // the values, perceptor has been created from
+    private final Vector3D[] perceptorParts = new Vector3D[PARTS.length + 1];
+    private String perceptorTeam;
+    private String perceptorID;
+    
+    void clear() {
+      for (VectorValue v : parts)
+        v.clear();
+    }
+    
+    PlayerVisionPerceptor get() {
+      boolean changed = perceptor == null || team != perceptorTeam || id != perceptorID;
+      for (int i = 0; i < parts.length; i++)
+        changed |= parts[i].get() != perceptorParts[i];
+      if (changed) {
+        HashMap<RobotConsts.BodyPartName, Vector3D> map = new HashMap<>();
+        for (int i = 0; i < parts.length; i++) {
+          perceptorParts[i] = parts[i].get();
+          if (perceptorParts[i] != null)
+            map.put(i < PARTS.length ? PARTS[i] : null, perceptorParts[i]);
+        }
+        perceptorTeam = team;
+        perceptorID = id;
+        perceptor = new PlayerVisionPerceptor(team, id, map);
       }
-
-
-      // read FRP-values, getrennt nach links und rechts
-
-      Vector3D origin = new Vector3D( Double.valueOf((String) originNode.children[1]),
-              Double.valueOf((String) originNode.children[2]),
-              Double.valueOf((String) originNode.children[3]));
-      Vector3D force = new Vector3D(Double.valueOf((String) forceNode.children[1]),
-              Double.valueOf((String) forceNode.children[2]),
-              Double.valueOf((String) forceNode.children[3]));
-        
-      if (nameNode.children[1].equals("lf"))
-        frLeft = new ForceResistancePerceptor(origin, force);
-      else if (nameNode.children[1].equals("rf"))
-        frRight = new ForceResistancePerceptor(origin, force);
-      else 
-        throw new PerceptorConversionException("malformed message, lf or rf expected: "
-                + node.toString());
-    } catch (IndexOutOfBoundsException e) {
-      throw new PerceptorConversionException("Malformed node: "
-              + node.toString());
+      return perceptor;
     }
   }
   
   /**
-   * Internal method for parsing the server message. 
-   *
-   * Parse a symbol tree node into a hear perceptor value.
-   * "self"-messages are omitted!
-   *
-   * @param node Symbol tree node
-   * @throws PerceptorConversionException If the input string contains illegal
-   * data which cannot be converted
-   * 
-   */
-	private void parseHear(SymbolNode node)
-			throws PerceptorConversionException
-	{
-		double time;
-        double direction;
-		String heardMessage = "";
-
-		// Sanity checks
-		  if (node.children.length < 4) {
-      throw new PerceptorConversionException("Malformed hear node: "
-              + node.toString());
-    }
-
-    try {
-      if (!((String) node.children[2]).equals("self")) {
-        time = Double.parseDouble((String) node.children[1]);
-        direction = Double.parseDouble((String) node.children[2]);
-
-        // Concatenate following nodes
-        for (int i = 3; i < node.children.length; i++) {
-          if (i > 3) {
-            heardMessage += " " + node.children[i];
-          } else {
-            heardMessage += node.children[i];
-          }
-        }
-        hears.add(new HearPerceptor(time, direction, heardMessage));
+   * Value of a hear message, reused in every cycle. The message is kept as
+   * bytes, the String is only created, when the perceptor is requested.
+   */
+  private static final class HearValue {
+    double time;
+    double direction;
+    // bytes of the message, length -1 if it is absent
+    byte[] message = new byte[32];
+    int messageLength;
+    private HearPerceptor perceptor;
+    
+    void set(double time, double direction, byte[] buffer, int start, int length) {
+      boolean changed = perceptor == null || time != this.time 
+              || Double.doubleToLongBits(direction) != Double.doubleToLongBits(this.direction)
+              || length != messageLength;
+      if (length > message.length)
+        message = new byte[Math.max(length, 2 * message.length)];
+      for (int i = 0; i < length; i++) {
+        changed |= message[i] != buffer[start + i];
+        message[i] = buffer[start + i];
       }
-    } catch (Exception e) {
-      throw new PerceptorConversionException(
-              "Malformed hear node, conversion error: " + node.toString());
+      this.time = time;
+      this.direction = direction;
+      messageLength = length;
+      if (changed)
+        perceptor = null;
+    }
+    
+    HearPerceptor get() {
+      if (perceptor == null)
+        perceptor = new HearPerceptor(time, direction, messageLength < 0 ? null
+                : new String(message, 0, messageLength, StandardCharsets.UTF_8));
+      return perceptor;
     }
   }
-
+  
+  private static VectorValue[] newValues(int count) {
+    VectorValue[] values = new VectorValue[count];
+    for (int i = 0; i < count; i++)
+      values[i] = new VectorValue();
+    return values;
+  }
+  
   /**
-   * Internal method for parsing the server message. 
-   *
-   * Parse a symbol tree node into a hear perceptor value.
-   *
-   * @param node Symbol tree node
-   * @throws PerceptorConversionException If the input string contains illegal
-   * data which cannot be converted
-   */
-	private void parseGameState(SymbolNode node)
-			throws PerceptorConversionException
-	{
-		double time = 0;
-        GameStateConsts.PlayMode playMode = null;
-
-		SymbolNode child = null;
-
-		// Evaluate content
-		for (int i = 1; i < node.children.length; i++) {
-			try {
-				child = (SymbolNode) node.children[i];
-
-				String type = (String) child.children[0];
-        // Check sub-node type
-        switch (type) {
-          case "t":
-            time = Float.parseFloat((String) child.children[1]);
-            break;
-          case "pm":
-            String pm = ( String) child.children[1];
-            playMode = GameStateConsts.getPlayMode(pm);
-            break;
-          default:
-            throw new PerceptorConversionException(
-                    "Malformed GameState node, unknown sub-node: "
-                            + child.toString());
-        }
-			} catch (NumberFormatException | PerceptorConversionException e) {
-				if (child != null)
-					throw new PerceptorConversionException(
-							"Malformed GameState node, conversion error: "
-									+ child.toString());
-
-				throw new PerceptorConversionException(
-						"Malformed GameState node: child was null!");
-			}
-		}
-		gameState = new GameStatePerceptor(time, playMode);
-	}
+   * Returns the names of enum constants as sent by the server. The names of 
+   * the body parts are sent in lower case.
+   */
+  private static byte[][] names(Enum<?>[] constants) {
+    byte[][] names = new byte[constants.length][];
+    for (int i = 0; i < constants.length; i++) {
+      String name = constants[i].name();
+      if (constants[i] instanceof RobotConsts.BodyPartName)
+        name = name.toLowerCase(Locale.ROOT);
+      names[i] = ascii(name);
+    }
+    return names;
+  }
+  
+  private static byte[] ascii(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
 }
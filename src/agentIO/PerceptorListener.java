@@ -0,0 +1,20 @@
+package agentIO;
+
+/**
+ * Receiver of the changes of a PerceptorWatch.
+ *
+ * Register it by PerceptorInput.addListener(...). It is called by
+ * PerceptorInput.update() in the thread of the agent loop, after all
+ * perceptor values of the cycle have been read, so it can use the getters of
+ * PerceptorInput.
+ */
+public interface PerceptorListener {
+
+  /**
+   * Called when the observed value of a watch has changed.
+   *
+   * @param percIn The perceptor input with the values of the actual cycle.
+   * @param watch The watch, see its getValue() and isOn() for the new value.
+   */
+  void changed(PerceptorInput percIn, PerceptorWatch watch);
+}
@@ -0,0 +1,298 @@
+package agentIO;
+
+import util.FieldConsts;
+import util.RobotConsts;
+
+/**
+ * Perceptor values of one server cycle as primitive values.
+ *
+ * PerceptorInput provides the values of the perceptors as objects like
+ * Vector3D, which is convenient, but code running in every cycle then
+ * computes the same angles and distances again and again, e.g. by calling
+ * getAlpha() and getNorm() of the ball coordinates. This class holds the same
+ * values in arrays of doubles, one array per component: the joint angles,
+ * gyrometer, accelerometer and force resistance values, and the seen ball,
+ * goal posts and flags in polar coordinates, exactly as sent by the server
+ * (but in radians). So reading a value is just an array access.
+ *
+ * Whether a value is present is kept in bits: isVisible(...) for the seen
+ * objects and hasForce(...) for the force resistance perceptors. Values which
+ * are not present keep an old value, so check the bits first.
+ *
+ * The seen objects are addressed by an index: BALL, goalPostIndex(...) or
+ * flagIndex(...). The vectors are addressed by the axes X, Y and Z, in the
+ * coordinate system of the respective perceptor.
+ *
+ * The snapshot of PerceptorInput.getSnapshot() is written by update(), so
+ * its values are valid until the next update(), like the other values of
+ * PerceptorInput. Other threads get their own copies by a SnapshotReader,
+ * which do not change while they are read. Lines and players are not part of
+ * the snapshot, use the getters of PerceptorInput.
+ *
+ * Example:
+ * PerceptorSnapshot snapshot = percIn.getSnapshot();
+ * if (snapshot.isBallVisible() && Math.abs(snapshot.ballAzimuth()) < 0.2) ...
+ */
+public final class PerceptorSnapshot {
+
+  public static final int X = 0;
+  public static final int Y = 1;
+  public static final int Z = 2;
+
+  public static final int LEFT_FOOT = 0;
+  public static final int RIGHT_FOOT = 1;
+
+  /** Index of the ball in the arrays of the seen objects. */
+  public static final int BALL = 0;
+  private static final int FIRST_GOAL_POST = 1;
+  private static final int FIRST_FLAG =
+          FIRST_GOAL_POST + FieldConsts.GoalPostID.values().length;
+  /** Number of seen objects: ball, goal posts and flags. */
+  public static final int OBJECT_COUNT = FIRST_FLAG + FieldConsts.FlagID.values().length;
+
+  long cycle;
+  double serverTime;
+  final double[] joints = new double[RobotConsts.JointsCount];
+  final double[] gyro = new double[3];
+  final double[] acc = new double[3];
+  // index foot * 3 + axis
+  final double[] forceOrigin = new double[6];
+  final double[] force = new double[6];
+  /** Bit foot is set, if the force resistance perceptor of the foot is present. */
+  int forceBits;
+
+  final double[] distance = new double[OBJECT_COUNT];
+  final double[] azimuth = new double[OBJECT_COUNT];
+  final double[] elevation = new double[OBJECT_COUNT];
+  /** Bit i is set, if the seen object i is present in the last See perceptor. */
+  long seenBits;
+  /** Whether the last See perceptor belongs to the actual cycle. */
+  boolean vision;
+
+  PerceptorSnapshot() {
+  }
+
+  /**
+   * Returns the index of a goal post in the arrays of the seen objects.
+   *
+   * @param id ID of the goal post.
+   * @return Index for isVisible(...), distance(...), azimuth(...) and
+   * elevation(...).
+   */
+  public static int goalPostIndex(FieldConsts.GoalPostID id) {
+    return FIRST_GOAL_POST + id.ordinal();
+  }
+
+  /**
+   * Returns the index of a flag in the arrays of the seen objects.
+   *
+   * @param id ID of the flag.
+   * @return Index for isVisible(...), distance(...), azimuth(...) and
+   * elevation(...).
+   */
+  public static int flagIndex(FieldConsts.FlagID id) {
+    return FIRST_FLAG + id.ordinal();
+  }
+
+  /**
+   * Returns the number of the cycle.
+   *
+   * @return Number of calls of PerceptorInput.update() up to this cycle.
+   */
+  public long cycle() {
+    return cycle;
+  }
+
+  /**
+   * Returns the server time of the cycle.
+   *
+   * @return Time as returned by PerceptorInput.getServerTime().
+   */
+  public double serverTime() {
+    return serverTime;
+  }
+
+  /**
+   * Returns the angle of a hinge joint.
+   *
+   * @param i Index of the joint as defined in class RobotConsts.
+   * @return The angle in radians.
+   */
+  public double joint(int i) {
+    return joints[i];
+  }
+
+  /**
+   * Returns a component of the gyrometer value.
+   *
+   * @param axis X, Y or Z.
+   * @return The value as returned by PerceptorInput.getGyro().
+   */
+  public double gyro(int axis) {
+    return gyro[axis];
+  }
+
+  /**
+   * Returns a component of the accelerometer value.
+   *
+   * @param axis X, Y or Z.
+   * @return The value as returned by PerceptorInput.getAcc().
+   */
+  public double acc(int axis) {
+    return acc[axis];
+  }
+
+  /**
+   * Returns, whether a force resistance perceptor detected a collision in
+   * this cycle.
+   *
+   * @param foot LEFT_FOOT or RIGHT_FOOT.
+   * @return True if forceOrigin(...) and force(...) of the foot are valid.
+   */
+  public boolean hasForce(int foot) {
+    return (forceBits & (1 << foot)) != 0;
+  }
+
+  /**
+   * Returns a component of the point, where the force of a force resistance
+   * perceptor acts.
+   *
+   * @param foot LEFT_FOOT or RIGHT_FOOT.
+   * @param axis X, Y or Z.
+   * @return The coordinate, if hasForce(foot).
+   */
+  public double forceOrigin(int foot, int axis) {
+    return forceOrigin[foot * 3 + axis];
+  }
+
+  /**
+   * Returns a component of the force of a force resistance perceptor.
+   *
+   * @param foot LEFT_FOOT or RIGHT_FOOT.
+   * @param axis X, Y or Z.
+   * @return The force in Newton, if hasForce(foot).
+   */
+  public double force(int foot, int axis) {
+    return force[foot * 3 + axis];
+  }
+
+  /**
+   * Returns, whether a seen object is present in this cycle.
+   *
+   * @param object BALL, goalPostIndex(...) or flagIndex(...).
+   * @return True if the object has been seen in this cycle.
+   */
+  public boolean isVisible(int object) {
+    return vision && (seenBits & (1L << object)) != 0;
+  }
+
+  /**
+   * Returns the seen objects present in this cycle as bits.
+   *
+   * @return Bit i is set, if isVisible(i).
+   */
+  public long visibleObjects() {
+    return vision ? seenBits : 0;
+  }
+
+  /**
+   * Returns the distance of a seen object from the vision perceptor.
+   *
+   * @param object BALL, goalPostIndex(...) or flagIndex(...).
+   * @return Distance in meters, if isVisible(object).
+   */
+  public double distance(int object) {
+    return distance[object];
+  }
+
+  /**
+   * Returns the horizontal angle of a seen object relative to the vision
+   * perceptor.
+   *
+   * @param object BALL, goalPostIndex(...) or flagIndex(...).
+   * @return Angle in radians, positive to the left, if isVisible(object).
+   */
+  public double azimuth(int object) {
+    return azimuth[object];
+  }
+
+  /**
+   * Returns the vertical angle of a seen object relative to the vision
+   * perceptor.
+   *
+   * @param object BALL, goalPostIndex(...) or flagIndex(...).
+   * @return Angle in radians, positive upwards, if isVisible(object).
+   */
+  public double elevation(int object) {
+    return elevation[object];
+  }
+
+  /**
+   * Returns, whether the ball is seen in this cycle.
+   *
+   * @return Same as isVisible(BALL).
+   */
+  public boolean isBallVisible() {
+    return isVisible(BALL);
+  }
+
+  /**
+   * Returns the distance of the ball.
+   *
+   * @return Same as distance(BALL).
+   */
+  public double ballDistance() {
+    return distance[BALL];
+  }
+
+  /**
+   * Returns the horizontal angle of the ball.
+   *
+   * @return Same as azimuth(BALL).
+   */
+  public double ballAzimuth() {
+    return azimuth[BALL];
+  }
+
+  /**
+   * Returns the vertical angle of the ball.
+   *
+   * @return Same as elevation(BALL).
+   */
+  public double ballElevation() {
+    return elevation[BALL];
+  }
+
+  void copyFrom(PerceptorSnapshot source) {
+    cycle = source.cycle;
+    serverTime = source.serverTime;
+    System.arraycopy(source.joints, 0, joints, 0, joints.length);
+    System.arraycopy(source.gyro, 0, gyro, 0, gyro.length);
+    System.arraycopy(source.acc, 0, acc, 0, acc.length);
+    System.arraycopy(source.forceOrigin, 0, forceOrigin, 0, forceOrigin.length);
+    System.arraycopy(source.force, 0, force, 0, force.length);
+    forceBits = source.forceBits;
+    System.arraycopy(source.distance, 0, distance, 0, distance.length);
+    System.arraycopy(source.azimuth, 0, azimuth, 0, azimuth.length);
+    System.arraycopy(source.elevation, 0, elevation, 0, elevation.length);
+    seenBits = source.seenBits;
+    vision = source.vision;
+  }
+
+  void setSeen(int object, double distance, double azimuth, double elevation) {
+    if (Double.isNaN(distance) || Double.isNaN(azimuth) || Double.isNaN(elevation)) {
+      seenBits &= ~(1L << object);
+      return;
+    }
+    this.distance[object] = distance;
+    this.azimuth[object] = Math.toRadians(azimuth);
+    this.elevation[object] = Math.toRadians(elevation);
+    seenBits |= 1L << object;
+  }
+
+  static void set(double[] array, int offset, double x, double y, double z) {
+    array[offset + X] = x;
+    array[offset + Y] = y;
+    array[offset + Z] = z;
+  }
+}
@@ -0,0 +1,174 @@
+package agentIO;
+
+import util.GameStateConsts;
+
+/**
+ * A value derived from the perceptors, whose changes are reported to a
+ * PerceptorListener.
+ *
+ * Agents often check the same conditions in every cycle, e.g. whether the
+ * ball is seen or the robot has fallen, and then run their behavior logic
+ * again, even if nothing has changed. A watch observes such a value once per
+ * cycle, and PerceptorInput calls the listener only if the value differs from
+ * the one of the cycle before:
+ *
+ * percIn.addListener(PerceptorWatch.ballVisible(), new PerceptorListener() {
+ *   public void changed(PerceptorInput percIn, PerceptorWatch watch) {
+ *     ballLost = !watch.isOn();
+ *   }
+ * });
+ *
+ * The observed value is a long: conditions observe 1 (true) or 0 (false),
+ * other watches a number or counter, see the factory methods. It is 0 before
+ * the first observation, so the listener is called in the first cycle, if the
+ * value is not 0 then.
+ *
+ * Own watches are subclasses implementing observe(...). Observing should be
+ * cheap, as it is done in every cycle, so use PerceptorInput.getSnapshot()
+ * for the values. A watch may be registered only once.
+ */
+public abstract class PerceptorWatch {
+
+  private long value;
+
+  /**
+   * Observes the value in the actual cycle.
+   *
+   * @param percIn The perceptor input with the values of the actual cycle.
+   * @return The observed value.
+   */
+  protected abstract long observe(PerceptorInput percIn);
+
+  /**
+   * Returns the value observed last.
+   *
+   * @return The value, 0 before the first observation.
+   */
+  public long getValue() {
+    return value;
+  }
+
+  /**
+   * Returns, whether a condition holds.
+   *
+   * @return True if the value observed last is not 0.
+   */
+  public boolean isOn() {
+    return value != 0;
+  }
+
+  /**
+   * Observes the value, and returns whether it has changed.
+   */
+  boolean update(PerceptorInput percIn) {
+    long old = value;
+    value = observe(percIn);
+    return value != old;
+  }
+
+  /**
+   * Watches whether the ball is seen. The vision perceptor sends values only
+   * in every third cycle, so the condition is kept in the cycles without
+   * vision values.
+   *
+   * @return A condition, which is on while the ball is seen.
+   */
+  public static PerceptorWatch ballVisible() {
+    return new PerceptorWatch() {
+      @Override
+      protected long observe(PerceptorInput percIn) {
+        PerceptorSnapshot snapshot = percIn.getSnapshot();
+        if (!snapshot.vision)
+          return getValue();
+        return snapshot.isBallVisible() ? 1 : 0;
+      }
+    };
+  }
+
+  /**
+   * Watches the play mode.
+   *
+   * @return A watch, whose value is the ordinal of the play mode plus 1, or 0
+   * if the play mode is unknown. So it changes on every change of the play
+   * mode.
+   */
+  public static PerceptorWatch playMode() {
+    return new PerceptorWatch() {
+      @Override
+      protected long observe(PerceptorInput percIn) {
+        GameStateConsts.PlayMode mode = percIn.getPlayMode();
+        return mode == null ? 0 : mode.ordinal() + 1;
+      }
+    };
+  }
+
+  /**
+   * Watches the hear perceptor.
+   *
+   * @return A watch, whose value is the number of cycles with messages of
+   * other robots. So it changes whenever messages arrive.
+   */
+  public static PerceptorWatch hearReceived() {
+    return new PerceptorWatch() {
+      private long count;
+
+      @Override
+      protected long observe(PerceptorInput percIn) {
+        if (percIn.getHears() != null)
+          count++;
+        return count;
+      }
+    };
+  }
+
+  /**
+   * Watches whether a component of the accelerometer value is below a
+   * threshold, e.g. whether the z-component is below 7, which means that the
+   * robot has fallen.
+   *
+   * The accelerometer values are noisy, so a value near the threshold would 
+   * switch the condition on and off in many cycles. Therefore the condition 
+   * is switched off only when the value exceeds the threshold by the 
+   * hysteresis.
+   *
+   * @param axis PerceptorSnapshot.X, Y or Z.
+   * @param threshold The threshold.
+   * @param hysteresis Distance above the threshold to switch off, or 0.
+   * @return A condition, which is on while the value is below the threshold.
+   */
+  public static PerceptorWatch accBelow(final int axis, final double threshold,
+          final double hysteresis) {
+    return new PerceptorWatch() {
+      @Override
+      protected long observe(PerceptorInput percIn) {
+        double acc = percIn.getSnapshot().acc(axis);
+        return acc < (isOn() ? threshold + hysteresis : threshold) ? 1 : 0;
+      }
+    };
+  }
+
+  /**
+   * Watches whether a joint deviates from its target angle by more than a
+   * threshold, e.g. because it is blocked. Like accBelow(...), the 
+   * condition is switched off only when the deviation falls below the 
+   * threshold minus the hysteresis.
+   *
+   * @param joint Index of the joint as defined in class RobotConsts.
+   * @param targets Target angles in radians, indexed like the joints. The
+   * array is read in every cycle, so the caller can change the target.
+   * @param threshold Maximum deviation in radians.
+   * @param hysteresis Distance below the threshold to switch off, or 0.
+   * @return A condition, which is on while the deviation is above the
+   * threshold.
+   */
+  public static PerceptorWatch jointErrorAbove(final int joint, final double[] targets,
+          final double threshold, final double hysteresis) {
+    return new PerceptorWatch() {
+      @Override
+      protected long observe(PerceptorInput percIn) {
+        double error = Math.abs(targets[joint] - percIn.getJoint(joint));
+        return error > (isOn() ? threshold - hysteresis : threshold) ? 1 : 0;
+      }
+    };
+  }
+}
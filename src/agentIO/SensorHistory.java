@@ -0,0 +1,262 @@
+package agentIO;
+
+import util.RobotConsts;
+
+/**
+ * The values of the internal perceptors in the last cycles.
+ *
+ * PerceptorInput records the joint angles, gyrometer, accelerometer and force
+ * resistance values and the server time of every cycle here, so agents can
+ * look at the course of a value, e.g. to detect a falling robot or a blocked
+ * joint, without keeping copies of the values on their own.
+ *
+ * The values are stored in ring buffers of doubles, one per channel, which
+ * are allocated once. Each channel is addressed by an index: joint(...) for
+ * the joints, GYRO, ACC, FORCE_ORIGIN and FORCE (plus axis, and plus foot for
+ * the force resistance perceptors, see PerceptorSnapshot). The cycles are
+ * addressed by their age: 0 is the actual cycle, 1 the cycle before, up to
+ * size() - 1. A force resistance perceptor, which detected no collision in a
+ * cycle, is recorded with origin and force 0.
+ *
+ * Single values cost O(1), statistics over a window of cycles O(window), and
+ * the value at a server time O(log size()).
+ */
+public final class SensorHistory {
+
+  /** First channel of the gyrometer, add PerceptorSnapshot.X, Y or Z. */
+  public static final int GYRO = RobotConsts.JointsCount;
+  /** First channel of the accelerometer, add PerceptorSnapshot.X, Y or Z. */
+  public static final int ACC = GYRO + 3;
+  /** First channel of the force origins, add 3 * foot + axis. */
+  public static final int FORCE_ORIGIN = ACC + 3;
+  /** First channel of the forces, add 3 * foot + axis. */
+  public static final int FORCE = FORCE_ORIGIN + 6;
+  /** Number of channels. */
+  public static final int CHANNELS = FORCE + 6;
+
+  private final double[][] values;
+  private final double[] times;
+  /** Index of the actual cycle in the ring buffers. */
+  private int newest = -1;
+  private int size;
+
+  SensorHistory(int capacity) {
+    if (capacity < 1)
+      throw new IllegalArgumentException("Capacity must be at least 1: " + capacity);
+    values = new double[CHANNELS][capacity];
+    times = new double[capacity];
+  }
+
+  /**
+   * Returns the channel of a joint.
+   *
+   * @param i Index of the joint as defined in class RobotConsts.
+   * @return The channel index.
+   */
+  public static int joint(int i) {
+    return i;
+  }
+
+  /**
+   * Returns the number of cycles kept at most.
+   *
+   * @return The capacity given to the constructor.
+   */
+  public int capacity() {
+    return times.length;
+  }
+
+  /**
+   * Returns the number of recorded cycles.
+   *
+   * @return Number of cycles, at most capacity().
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the server time of a cycle.
+   *
+   * @param age Age of the cycle, 0 is the actual one.
+   * @return Server time of the cycle.
+   */
+  public double time(int age) {
+    return times[index(age)];
+  }
+
+  /**
+   * Returns the value of a channel in a cycle.
+   *
+   * @param channel Index of the channel.
+   * @param age Age of the cycle, 0 is the actual one.
+   * @return The recorded value.
+   */
+  public double value(int channel, int age) {
+    return values[channel][index(age)];
+  }
+
+  /**
+   * Returns the mean value of a channel over the last cycles.
+   *
+   * @param channel Index of the channel.
+   * @param window Number of cycles, from 1 to size().
+   * @return Arithmetic mean of the values.
+   */
+  public double mean(int channel, int window) {
+    checkWindow(window);
+    double[] v = values[channel];
+    double sum = 0;
+    for (int age = 0, i = newest; age < window; age++, i = previous(i))
+      sum += v[i];
+    return sum / window;
+  }
+
+  /**
+   * Returns the variance of a channel over the last cycles.
+   *
+   * @param channel Index of the channel.
+   * @param window Number of cycles, from 1 to size().
+   * @return Population variance of the values, 0 for a single cycle.
+   */
+  public double variance(int channel, int window) {
+    double mean = mean(channel, window);
+    double[] v = values[channel];
+    double sum = 0;
+    for (int age = 0, i = newest; age < window; age++, i = previous(i)) {
+      double d = v[i] - mean;
+      sum += d * d;
+    }
+    return sum / window;
+  }
+
+  /**
+   * Returns the smallest value of a channel over the last cycles.
+   *
+   * @param channel Index of the channel.
+   * @param window Number of cycles, from 1 to size().
+   * @return The minimum.
+   */
+  public double min(int channel, int window) {
+    checkWindow(window);
+    double[] v = values[channel];
+    double min = Double.POSITIVE_INFINITY;
+    for (int age = 0, i = newest; age < window; age++, i = previous(i))
+      min = Math.min(min, v[i]);
+    return min;
+  }
+
+  /**
+   * Returns the largest value of a channel over the last cycles.
+   *
+   * @param channel Index of the channel.
+   * @param window Number of cycles, from 1 to size().
+   * @return The maximum.
+   */
+  public double max(int channel, int window) {
+    checkWindow(window);
+    double[] v = values[channel];
+    double max = Double.NEGATIVE_INFINITY;
+    for (int age = 0, i = newest; age < window; age++, i = previous(i))
+      max = Math.max(max, v[i]);
+    return max;
+  }
+
+  /**
+   * Returns the rate of change of a channel, as finite difference between the
+   * actual cycle and an older one.
+   *
+   * @param channel Index of the channel.
+   * @param span Age of the older cycle, from 1 to size() - 1.
+   * @return Change of the value per second of server time, or 0 if the server
+   * time did not change.
+   */
+  public double derivative(int channel, int span) {
+    if (span < 1 || span >= size)
+      throw new IllegalArgumentException("No cycle at age " + span + ", size " + size);
+    int old = index(span);
+    double dt = times[newest] - times[old];
+    if (dt == 0)
+      return 0;
+    return (values[channel][newest] - values[channel][old]) / dt;
+  }
+
+  /**
+   * Returns the value of a channel at a server time, interpolated linearly
+   * between the cycles before and after it.
+   *
+   * @param channel Index of the channel.
+   * @param time Server time.
+   * @return The interpolated value, or the value of the oldest or the actual
+   * cycle if the time is out of the recorded range.
+   */
+  public double valueAt(int channel, double time) {
+    checkWindow(1);
+    double[] v = values[channel];
+    if (time >= times[newest])
+      return v[newest];
+    int oldest = index(size - 1);
+    if (time <= times[oldest])
+      return v[oldest];
+    // binary search for the youngest cycle not after time, by age
+    int low = 0;
+    int high = size - 1;
+    while (high - low > 1) {
+      int middle = (low + high) >>> 1;
+      if (times[index(middle)] > time)
+        low = middle;
+      else
+        high = middle;
+    }
+    int before = index(high);
+    int after = index(low);
+    double dt = times[after] - times[before];
+    if (dt == 0)
+      return v[after];
+    return v[before] + (v[after] - v[before]) * (time - times[before]) / dt;
+  }
+
+  /**
+   * Removes all recorded cycles.
+   */
+  public void clear() {
+    newest = -1;
+    size = 0;
+  }
+
+  void record(PerceptorSnapshot snapshot) {
+    newest = (newest + 1) % times.length;
+    size = Math.min(size + 1, times.length);
+    times[newest] = snapshot.serverTime;
+    for (int i = 0; i < RobotConsts.JointsCount; i++)
+      values[joint(i)][newest] = snapshot.joints[i];
+    for (int axis = 0; axis < 3; axis++) {
+      values[GYRO + axis][newest] = snapshot.gyro[axis];
+      values[ACC + axis][newest] = snapshot.acc[axis];
+    }
+    for (int foot = PerceptorSnapshot.LEFT_FOOT; foot <= PerceptorSnapshot.RIGHT_FOOT; foot++) {
+      boolean present = snapshot.hasForce(foot);
+      for (int axis = 0; axis < 3; axis++) {
+        int i = foot * 3 + axis;
+        values[FORCE_ORIGIN + i][newest] = present ? snapshot.forceOrigin[i] : 0;
+        values[FORCE + i][newest] = present ? snapshot.force[i] : 0;
+      }
+    }
+  }
+
+  private int index(int age) {
+    if (age < 0 || age >= size)
+      throw new IllegalArgumentException("No cycle at age " + age + ", size " + size);
+    int i = newest - age;
+    return i < 0 ? i + times.length : i;
+  }
+
+  private int previous(int i) {
+    return i == 0 ? times.length - 1 : i - 1;
+  }
+
+  private void checkWindow(int window) {
+    if (window < 1 || window > size)
+      throw new IllegalArgumentException("Window of " + window + " cycles, size " + size);
+  }
+}
@@ -0,0 +1,219 @@
+package agentIO;
+
+/**
+ * Model of the server cycle, relating the server time to the local clock.
+ *
+ * Every server message contains the server time, and PerceptorInput notes
+ * the local time (System.nanoTime()), when it has received the message. From
+ * these pairs this class estimates:
+ * - the length of a server cycle in server time (usually 20 ms), as the
+ * smallest step of the server time within the last WINDOW messages; a step
+ * of several cycles means missed cycles, but steps are counted as missed
+ * cycles only after ESTABLISHING_STEPS steps, when the cycle is known
+ * - the drift, i.e. how much faster the local clock runs than the server
+ * time, e.g. when the server is slower than real time
+ * - the jitter of the arrival times
+ * - when the next message is expected, so an agent can find out how much
+ * time is left for thinking in the actual cycle
+ *
+ * The local arrival time is fitted as a linear function of the server time,
+ * by least squares with exponential forgetting, so the estimates follow slow
+ * changes. All values are primitive, and nothing is allocated.
+ *
+ * PerceptorInput updates a clock in every cycle, see
+ * PerceptorInput.getClock().
+ */
+public final class ServerClock {
+
+  /** Cycle length of SimSpark, used until a cycle has been measured. */
+  public static final double DEFAULT_CYCLE_LENGTH = 0.02;
+  /** Number of the last steps of the server time, used for the cycle length. */
+  public static final int WINDOW = 32;
+  /** Number of steps, after which the cycle length is considered as known. */
+  public static final int ESTABLISHING_STEPS = 8;
+  private static final double SMOOTHING = 0.05;
+  /** Weight of older samples in the fit, per sample. */
+  private static final double FORGETTING = 0.99;
+
+  private double cycleLength = DEFAULT_CYCLE_LENGTH;
+  private long messages;
+  private long missedCycles;
+  private double serverTime;
+  private long arrivalNanos;
+  // last steps of the server time, as ring buffer
+  private final double[] steps = new double[WINDOW];
+  private long stepCount;
+
+  // origin of the fit, to keep the sums small
+  private double serverOrigin;
+  private long arrivalOrigin;
+  // weighted sums of the fit: local seconds = a + b * server seconds
+  private double sumW;
+  private double sumX;
+  private double sumY;
+  private double sumXX;
+  private double sumXY;
+  private double a;
+  private double b = 1;
+  private double jitterVariance;
+
+  /**
+   * Adds a received message.
+   *
+   * @param serverTime Server time of the message in seconds.
+   * @param arrivalNanos Local time of receiving the message, by
+   * System.nanoTime().
+   */
+  public void update(double serverTime, long arrivalNanos) {
+    if (messages == 0 || serverTime < this.serverTime) {
+      // first message, or the server has been restarted
+      reset();
+      serverOrigin = serverTime;
+      arrivalOrigin = arrivalNanos;
+    } else if (serverTime > this.serverTime) {
+      double step = serverTime - this.serverTime;
+      steps[(int) (stepCount % WINDOW)] = step;
+      stepCount++;
+      // a message is missed now and then, so the smallest step is one cycle
+      double smallest = step;
+      for (int i = (int) Math.min(stepCount, WINDOW) - 1; i >= 0; i--)
+        smallest = Math.min(smallest, steps[i]);
+      cycleLength = smallest;
+      if (stepCount >= ESTABLISHING_STEPS)
+        missedCycles += Math.max(1, Math.round(step / cycleLength)) - 1;
+    }
+    this.serverTime = serverTime;
+    this.arrivalNanos = arrivalNanos;
+    messages++;
+
+    double x = serverTime - serverOrigin;
+    double y = (arrivalNanos - arrivalOrigin) * 1e-9;
+    if (sumW >= 2) {
+      double residual = y - (a + b * x);
+      jitterVariance += (residual * residual - jitterVariance) * SMOOTHING;
+    }
+    sumW = sumW * FORGETTING + 1;
+    sumX = sumX * FORGETTING + x;
+    sumY = sumY * FORGETTING + y;
+    sumXX = sumXX * FORGETTING + x * x;
+    sumXY = sumXY * FORGETTING + x * y;
+    double det = sumW * sumXX - sumX * sumX;
+    if (det > 1e-12) {
+      b = (sumW * sumXY - sumX * sumY) / det;
+      a = (sumY - b * sumX) / sumW;
+    } else {
+      b = 1;
+      a = y - x;
+    }
+  }
+
+  /**
+   * Forgets all measurements.
+   */
+  public void reset() {
+    cycleLength = DEFAULT_CYCLE_LENGTH;
+    messages = 0;
+    missedCycles = 0;
+    stepCount = 0;
+    sumW = sumX = sumY = sumXX = sumXY = 0;
+    a = 0;
+    b = 1;
+    jitterVariance = 0;
+  }
+
+  /**
+   * Returns the length of a server cycle.
+   *
+   * @return Estimated server time between two cycles, in seconds.
+   */
+  public double getCycleLength() {
+    return cycleLength;
+  }
+
+  /**
+   * Returns the length of a server cycle, in milliseconds.
+   *
+   * @return getCycleLength() rounded to whole milliseconds, at least 1.
+   */
+  public int getCycleMillis() {
+    return (int) Math.max(1, Math.round(cycleLength * 1000));
+  }
+
+  /**
+   * Returns the number of cycles, in which no message has been received.
+   *
+   * @return Number of skipped server times since the start.
+   */
+  public long getMissedCycles() {
+    return missedCycles;
+  }
+
+  /**
+   * Returns, how much faster the local clock runs than the server time.
+   *
+   * @return Relative difference, e.g. 0.1 if a server second takes 1.1 local
+   * seconds, 0 until enough messages have been received.
+   */
+  public double getDrift() {
+    return b - 1;
+  }
+
+  /**
+   * Returns the jitter of the arrival times.
+   *
+   * @return Standard deviation of the arrival times from the estimated
+   * times, in seconds.
+   */
+  public double getJitter() {
+    return Math.sqrt(jitterVariance);
+  }
+
+  /**
+   * Returns the local time, when the actual message has been received.
+   *
+   * @return Time by System.nanoTime().
+   */
+  public long getArrivalNanos() {
+    return arrivalNanos;
+  }
+
+  /**
+   * Returns the age of the actual perceptor values.
+   *
+   * @return Local time in seconds since the actual message has been received.
+   */
+  public double getPerceptionAge() {
+    return (System.nanoTime() - arrivalNanos) * 1e-9;
+  }
+
+  /**
+   * Returns the local time, when the next message is expected.
+   *
+   * @return Time by System.nanoTime().
+   */
+  public long getNextArrivalNanos() {
+    double x = serverTime + cycleLength - serverOrigin;
+    return arrivalOrigin + (long) ((a + b * x) * 1e9);
+  }
+
+  /**
+   * Returns the time left until the next message is expected, e.g. to
+   * decide whether there is time for an expensive computation.
+   *
+   * @return Local time in seconds, negative if the next message is late.
+   */
+  public double getTimeToNextCycle() {
+    return (getNextArrivalNanos() - System.nanoTime()) * 1e-9;
+  }
+
+  /**
+   * Returns the phase of the actual moment in the server cycle.
+   *
+   * @return Share of the cycle, which has passed since the actual message
+   * arrived: 0 at its arrival, 1 when the next one is expected.
+   */
+  public double getPhase() {
+    double localCycle = cycleLength * b;
+    return (System.nanoTime() - arrivalNanos) * 1e-9 / localCycle;
+  }
+}
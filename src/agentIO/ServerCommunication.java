@@ -1,11 +1,15 @@
 package agentIO;
 
+import java.io.BufferedWriter;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.net.ConnectException;
 import java.net.Socket;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Connection to the SimSpark server, receiving and sending of messages via
@@ -62,6 +66,11 @@ public class ServerCommunication{
   private DataInputStream in;
   private DataOutputStream out;
   private Socket socket;
+  private BufferedWriter recorder;
+  
+  private byte[] messageBuffer = new byte[8192];
+  /** Length of the header of a message in the network protocol. */
+  public static final int HEADER_LENGTH = 4;
 
   /**
    * Constructor, establishes the TCP-connection to the server.
@@ -92,6 +101,17 @@ public class ServerCommunication{
       e.printStackTrace();
     }
   }
+  
+  /**
+   * Constructor for subclasses, which provide server messages without a 
+   * connection to the server, like ServerPlayback.
+   * 
+   * @param connect Must be false, use the public constructor to connect.
+   */
+  protected ServerCommunication(boolean connect) {
+    if (connect)
+      throw new IllegalArgumentException("Use ServerCommunication() to connect");
+  }
     
   /**
    * This method initializes the robot on the soccer field.
@@ -143,6 +163,24 @@ public class ServerCommunication{
   public void sendAgentMessage(String msg) {
     //System.out.println("Sende Nachricht:" + msg);
     byte[] body = msg.getBytes();
+    byte[] buffer = new byte[HEADER_LENGTH + body.length];
+    System.arraycopy(body, 0, buffer, HEADER_LENGTH, body.length);
+    sendAgentMessage(buffer, body.length);
+  }
+
+  /**
+   * Sends an agent message, which is already encoded as bytes, to the server.
+   * <p/>
+   * Like sendAgentMessage(String), but without creating any objects. The 
+   * message starts at index HEADER_LENGTH of the buffer, the bytes before are
+   * overwritten with the header of the network protocol, so that the whole 
+   * message is written to the socket at once.
+   * <p/>
+   * The content of the agent message is not validated.
+   * @param buffer Buffer with the agent message at index HEADER_LENGTH.
+   * @param length Length of the agent message in bytes, without the header.
+   */
+  public void sendAgentMessage(byte[] buffer, int length) {
 
     //Kommentar der Autoren von magma aus Offenburg:
     // FIXME: this is to compensate a server bug that clients responding too
@@ -167,18 +205,13 @@ public class ServerCommunication{
     // "The length prefix is a 32 bit unsigned integer in network order, i.e. big 
     // endian notation with the most significant bits transferred first." 
     // (Zitat aus http://simspark.sourceforge.net/wiki/index.php/Network_Protocol, stand 14.1.2012)
-    int len = body.length;
-    int byte0 = (len >> 24) & 0xFF;
-    int byte1 = (len >> 16) & 0xFF;
-    int byte2 = (len >> 8) & 0xFF;
-    int byte3 = len & 0xFF;
+    buffer[0] = (byte) ((length >> 24) & 0xFF);
+    buffer[1] = (byte) ((length >> 16) & 0xFF);
+    buffer[2] = (byte) ((length >> 8) & 0xFF);
+    buffer[3] = (byte) (length & 0xFF);
 
     try {
-      out.writeByte((byte) byte0);
-      out.writeByte((byte) byte1);
-      out.writeByte((byte) byte2);
-      out.writeByte((byte) byte3);
-      out.write(body);
+      out.write(buffer, 0, HEADER_LENGTH + length);
       out.flush();
     } catch (IOException e) {
       System.out.println("Error writing to socket. Has the server been shut down?");
@@ -198,37 +231,101 @@ public class ServerCommunication{
    * @return The raw server message (String of concatenated perceptor messages).
    */
   public String getServerMessage() {
-    String msg = "keine Nachricht";
-    byte[] result;
-    int length;
-
-    // System.out.println("Probiere Nachricht zu bekommen.");
+    int length = receiveServerMessage();
+    if (length < 0)
+      return null;
+    return new String(getMessageBuffer(), 0, length, StandardCharsets.UTF_8);
+  }
 
+  /**
+   * Receives a server message into the message buffer.
+   * <p/>
+   * Like getServerMessage(), but the message is not converted into a String.
+   * It is read into a buffer, which is reused for all messages, so that no 
+   * objects are created in every cycle. The buffer is returned by 
+   * getMessageBuffer(), and its content is valid until the next message is 
+   * received.
+   * <p/>
+   * @return Length of the message in bytes, or -1 if no message could be read.
+   */
+  public int receiveServerMessage() {
+    int length;
     try {
-      int byte0 = in.read();
-      int byte1 = in.read();
-      int byte2 = in.read();
-      int byte3 = in.read();
-      length = byte0 << 24 | byte1 << 16 | byte2 << 8 | byte3; // analyzes
-      // the header
-      int total = 0;
-
+      // analyzes the header
+      length = in.readInt();
       if (length < 0) {
         // server was shutdown
         System.out.println("Server ist down.");
+        return -1;
       }
+      if (length > messageBuffer.length)
+        messageBuffer = new byte[Math.max(length, 2 * messageBuffer.length)];
+      in.readFully(messageBuffer, 0, length);
+    } catch (IOException e) {
+      System.out.println("Error when reading from socket. Has the server been shut down?");
+      return -1;
+    }
 
-      result = new byte[length];
-      while (total < length) {
-        total += in.read(result, total, length - total);
-      }
+    record(messageBuffer, length);
+    return length;
+  }
 
-      msg = new String(result, 0, length, "UTF-8");
+  /**
+   * Returns the buffer holding the last message received by 
+   * receiveServerMessage().
+   * <p/>
+   * @return Buffer starting with the message, it may be longer than the 
+   * message.
+   */
+  public byte[] getMessageBuffer() {
+    return messageBuffer;
+  }
+
+  /**
+   * Records all following server messages in a text file.
+   * <p/>
+   * Every message is written as one line, so that the file can be read again 
+   * line by line. Recorded messages are useful to test or measure the 
+   * processing of messages without running the server, e.g. with the 
+   * benchmarks in package benchmarks.
+   * @param fileName Name of the file, an existing file is overwritten.
+   */
+  public void recordServerMessages(String fileName) {
+    stopRecording();
+    try {
+      recorder = new BufferedWriter(new OutputStreamWriter(
+              new FileOutputStream(fileName), "UTF-8"));
     } catch (IOException e) {
-      System.out.println("Error when reading from socket. Has the server been shut down?");
-      return null;
+      System.out.println("Cannot record server messages in " + fileName);
+      e.printStackTrace();
     }
+  }
+
+  /**
+   * Stops recording server messages and closes the file.
+   */
+  public void stopRecording() {
+    if (recorder == null)
+      return;
+    try {
+      recorder.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+    recorder = null;
+  }
 
-    return msg;
+  private void record(byte[] message, int length) {
+    if (recorder == null)
+      return;
+    try {
+      String msg = new String(message, 0, length, StandardCharsets.UTF_8);
+      recorder.write(msg.replace('\n', ' '));
+      recorder.newLine();
+      recorder.flush();
+    } catch (IOException e) {
+      System.out.println("Error writing recorded server message, recording stopped.");
+      recorder = null;
+    }
   }
 }
\ No newline at end of file
@@ -0,0 +1,87 @@
+package agentIO;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Replays recorded server messages instead of connecting to the server.
+ *
+ * The messages are read from a file written by
+ * ServerCommunication.recordServerMessages(...), one message per line. An
+ * object of this class can be passed to PerceptorInput and EffectorOutput
+ * like a ServerCommunication, so the processing of the messages can be tested
+ * or measured without running the server. Agent messages are discarded.
+ *
+ * After the last recorded message, the playback starts again with the first
+ * one.
+ */
+public class ServerPlayback extends ServerCommunication {
+
+  private final byte[][] messages;
+  private int next;
+  private byte[] actual = new byte[0];
+
+  /**
+   * Constructor, reads all messages of a recording.
+   *
+   * @param fileName Name of the file with the recorded messages.
+   * @throws IOException If the file cannot be read.
+   */
+  public ServerPlayback(String fileName) throws IOException {
+    super(false);
+    List<String> lines = Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8);
+    if (lines.isEmpty())
+      throw new IOException("No server messages in " + fileName);
+    messages = new byte[lines.size()][];
+    for (int i = 0; i < messages.length; i++)
+      messages[i] = lines.get(i).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Returns the number of recorded messages.
+   *
+   * @return Number of messages in one pass of the playback.
+   */
+  public int getMessageCount() {
+    return messages.length;
+  }
+
+  /**
+   * Provides the next recorded message.
+   *
+   * @return Length of the message in bytes.
+   */
+  @Override
+  public int receiveServerMessage() {
+    actual = messages[next];
+    next = (next + 1) % messages.length;
+    return actual.length;
+  }
+
+  @Override
+  public byte[] getMessageBuffer() {
+    return actual;
+  }
+
+  /**
+   * Discards an agent message.
+   *
+   * @param msg Agent message, which is not sent anywhere.
+   */
+  @Override
+  public void sendAgentMessage(String msg) {
+  }
+
+  /**
+   * Discards an agent message.
+   *
+   * @param buffer Buffer with the agent message, which is not sent anywhere.
+   * @param length Length of the agent message.
+   */
+  @Override
+  public void sendAgentMessage(byte[] buffer, int length) {
+  }
+}
@@ -0,0 +1,65 @@
+package agentIO;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Access to the perceptor snapshots from another thread than the agent loop.
+ *
+ * PerceptorInput overwrites its values in update(), so other threads (e.g.
+ * for head control or logging) must not read them directly. Instead, every
+ * such thread gets its own SnapshotReader by PerceptorInput.newSnapshotReader()
+ * and calls latest() whenever it needs the perceptor values.
+ *
+ * The reader is a triple buffer of PerceptorSnapshots: update() copies its
+ * values into the back buffer and exchanges it with the middle buffer in a
+ * single atomic operation. latest() exchanges the middle buffer with the
+ * front buffer in the same way, if a new snapshot has been published. So the
+ * snapshot returned by latest() belongs to the reading thread alone: it is a
+ * complete and consistent cycle, and it does not change until the next call
+ * of latest(). Neither side waits for the other one, a slow reader just skips
+ * cycles, and nothing is allocated after the construction.
+ *
+ * A SnapshotReader must be used by a single thread only. Compare
+ * PerceptorSnapshot.cycle() to find out, whether a snapshot is new.
+ */
+public final class SnapshotReader {
+
+  /** The state holds the index of the middle buffer, and this bit if it is new. */
+  private static final int FRESH = 4;
+  private static final int INDEX = 3;
+
+  private final PerceptorSnapshot[] buffers = {
+    new PerceptorSnapshot(), new PerceptorSnapshot(), new PerceptorSnapshot()
+  };
+  private final AtomicInteger state = new AtomicInteger(1);
+  // owned by the writer (the thread calling PerceptorInput.update())
+  private int back = 0;
+  // owned by the reader
+  private int front = 2;
+
+  SnapshotReader() {
+  }
+
+  /**
+   * Returns the most recent snapshot.
+   *
+   * @return A snapshot, which is not changed until the next call of latest().
+   * Before the first update() after creating the reader, its values are all
+   * zero and its cycle is 0.
+   */
+  public PerceptorSnapshot latest() {
+    if ((state.get() & FRESH) != 0)
+      front = state.getAndSet(front) & INDEX;
+    return buffers[front];
+  }
+
+  /**
+   * Publishes a copy of the values of a cycle.
+   *
+   * @param source The snapshot written by PerceptorInput.
+   */
+  void publish(PerceptorSnapshot source) {
+    buffers[back].copyFrom(source);
+    back = state.getAndSet(back | FRESH) & INDEX;
+  }
+}
@@ -0,0 +1,195 @@
+package agentIO;
+
+/**
+ * Estimates the support state of the robot from the force resistance
+ * perceptors in its feet.
+ *
+ * In every cycle, the vertical forces of both feet tell which feet carry the
+ * robot: none (e.g. while lying or jumping), the left, the right or both.
+ * The load ratio is the share of the left foot in the total force, and the
+ * center of pressure is the point, where the sum of the forces acts:
+ * - for each foot, relative to the center of its sole, as sent by the server
+ * - for both feet together, relative to the point between the feet. This
+ * assumes that the feet are parallel and at their distance when standing, so
+ * it is a rough estimate while walking.
+ *
+ * Coordinates are in meters: x-axis to the right, y-axis to the front.
+ * All values are primitive, and nothing is allocated.
+ *
+ * PerceptorInput updates an estimator in every cycle, see
+ * PerceptorInput.getSupport().
+ */
+public final class SupportEstimator {
+
+  public static final int NO_SUPPORT = 0;
+  public static final int LEFT_SUPPORT = 1;
+  public static final int RIGHT_SUPPORT = 2;
+  public static final int DOUBLE_SUPPORT = 3;
+
+  /** Vertical force in Newton, above which a foot carries the robot. */
+  private static final double MIN_FORCE = 5;
+  /** Share of the load, below which a foot does not support the robot. */
+  private static final double MIN_LOAD_SHARE = 0.1;
+  /** Distance of the center of each foot from the point between the feet. */
+  private static final double FOOT_OFFSET = 0.055;
+
+  private int support = NO_SUPPORT;
+  private double supportSince;
+  private double time;
+  private double leftForce;
+  private double rightForce;
+  private final double[] footCopX = new double[2];
+  private final double[] footCopY = new double[2];
+  private double copX;
+  private double copY;
+
+  /**
+   * Updates the estimation with the values of a new cycle.
+   *
+   * @param snapshot Perceptor values of the new cycle.
+   */
+  public void update(PerceptorSnapshot snapshot) {
+    time = snapshot.serverTime;
+    leftForce = readFoot(snapshot, PerceptorSnapshot.LEFT_FOOT);
+    rightForce = readFoot(snapshot, PerceptorSnapshot.RIGHT_FOOT);
+    double total = leftForce + rightForce;
+
+    int newSupport;
+    if (total < MIN_FORCE)
+      newSupport = NO_SUPPORT;
+    else if (rightForce < total * MIN_LOAD_SHARE)
+      newSupport = LEFT_SUPPORT;
+    else if (leftForce < total * MIN_LOAD_SHARE)
+      newSupport = RIGHT_SUPPORT;
+    else
+      newSupport = DOUBLE_SUPPORT;
+    if (newSupport != support) {
+      support = newSupport;
+      supportSince = time;
+    }
+
+    if (total > 0) {
+      copX = ((footCopX[PerceptorSnapshot.LEFT_FOOT] - FOOT_OFFSET) * leftForce
+              + (footCopX[PerceptorSnapshot.RIGHT_FOOT] + FOOT_OFFSET) * rightForce) / total;
+      copY = (footCopY[PerceptorSnapshot.LEFT_FOOT] * leftForce
+              + footCopY[PerceptorSnapshot.RIGHT_FOOT] * rightForce) / total;
+    } else {
+      copX = 0;
+      copY = 0;
+    }
+  }
+
+  /**
+   * Returns the feet, which carry the robot.
+   *
+   * @return NO_SUPPORT, LEFT_SUPPORT, RIGHT_SUPPORT or DOUBLE_SUPPORT.
+   */
+  public int getSupport() {
+    return support;
+  }
+
+  /**
+   * Returns, how long the support state has not changed.
+   *
+   * @return Server time in seconds since the last change of getSupport().
+   */
+  public double getSupportDuration() {
+    return time - supportSince;
+  }
+
+  /**
+   * Returns, whether a foot touches the ground with a relevant force.
+   *
+   * @param foot PerceptorSnapshot.LEFT_FOOT or RIGHT_FOOT.
+   * @return True if the vertical force of the foot is above 5 N.
+   */
+  public boolean isInContact(int foot) {
+    return getForce(foot) >= MIN_FORCE;
+  }
+
+  /**
+   * Returns the vertical force on a foot.
+   *
+   * @param foot PerceptorSnapshot.LEFT_FOOT or RIGHT_FOOT.
+   * @return Force in Newton, 0 without contact.
+   */
+  public double getForce(int foot) {
+    return foot == PerceptorSnapshot.LEFT_FOOT ? leftForce : rightForce;
+  }
+
+  /**
+   * Returns the vertical force on both feet.
+   *
+   * @return Force in Newton.
+   */
+  public double getTotalForce() {
+    return leftForce + rightForce;
+  }
+
+  /**
+   * Returns the share of the left foot in the load.
+   *
+   * @return Value from 0 (all on the right foot) to 1 (all on the left foot),
+   * 0.5 without any load.
+   */
+  public double getLoadRatio() {
+    double total = leftForce + rightForce;
+    return total > 0 ? leftForce / total : 0.5;
+  }
+
+  /**
+   * Returns the x-coordinate of the center of pressure of both feet.
+   *
+   * @return Coordinate relative to the point between the feet, 0 without any
+   * load.
+   */
+  public double getCopX() {
+    return copX;
+  }
+
+  /**
+   * Returns the y-coordinate of the center of pressure of both feet.
+   *
+   * @return Coordinate relative to the point between the feet, 0 without any
+   * load.
+   */
+  public double getCopY() {
+    return copY;
+  }
+
+  /**
+   * Returns the x-coordinate of the center of pressure of a foot.
+   *
+   * @param foot PerceptorSnapshot.LEFT_FOOT or RIGHT_FOOT.
+   * @return Coordinate relative to the center of the sole, 0 without contact.
+   */
+  public double getFootCopX(int foot) {
+    return footCopX[foot];
+  }
+
+  /**
+   * Returns the y-coordinate of the center of pressure of a foot.
+   *
+   * @param foot PerceptorSnapshot.LEFT_FOOT or RIGHT_FOOT.
+   * @return Coordinate relative to the center of the sole, 0 without contact.
+   */
+  public double getFootCopY(int foot) {
+    return footCopY[foot];
+  }
+
+  /**
+   * Reads the values of a foot, and returns its vertical force.
+   */
+  private double readFoot(PerceptorSnapshot snapshot, int foot) {
+    double force = snapshot.hasForce(foot)
+            ? snapshot.force(foot, PerceptorSnapshot.Z) : 0;
+    if (force <= 0) {
+      footCopX[foot] = 0;
+      footCopY[foot] = 0;
+      return 0;
+    }
+    footCopX[foot] = snapshot.forceOrigin(foot, PerceptorSnapshot.X);
+    footCopY[foot] = snapshot.forceOrigin(foot, PerceptorSnapshot.Y);
+    return force;
+  }
+}
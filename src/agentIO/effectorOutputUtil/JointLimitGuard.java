@@ -0,0 +1,158 @@
+package agentIO.effectorOutputUtil;
+
+import java.util.Arrays;
+import util.RobotConsts;
+
+/**
+ * Limits joint commands, so that the joints do not run into their limits and
+ * do not move faster than a maximum velocity.
+ *
+ * For each joint, the angle after the next cycle is predicted from its
+ * present angle and the commanded velocity. If it would pass the minimum or
+ * maximum angle, the velocity is reduced, so that the joint just reaches the
+ * limit. A joint, which is already beyond a limit, is not driven further, but
+ * it is not pushed back either. Finally the velocity is clamped to the
+ * maximum velocity of the joint.
+ *
+ * The limits are initialized with RobotConsts.getAngleMin(...) and
+ * getAngleMax(...), and the maximum velocities with DEFAULT_MAX_VELOCITY.
+ * All angles are in radians, velocities in radians per second.
+ *
+ * There are two implementations, in the same way as for StructuralClassifier
+ * in package agentIO.perceptorInputUtil: VectorJointLimitGuard uses the
+ * Vector API (module jdk.incubator.vector, Java 16 or newer) to process
+ * several joints per step. It is compiled only if the build runs on such a
+ * Java version, and it is used only if the JVM has been started with the
+ * option "--add-modules jdk.incubator.vector". Otherwise the scalar
+ * implementation of this class is used.
+ *
+ * See EffectorOutput.setJointLimitGuard(...) for the usage.
+ */
+public abstract class JointLimitGuard {
+
+  /** Default maximum velocity of all joints in rad/s, about 400 deg/s. */
+  public static final double DEFAULT_MAX_VELOCITY = 7.02;
+
+  private static final String VECTOR_GUARD =
+          "agentIO.effectorOutputUtil.VectorJointLimitGuard";
+
+  final double[] minAngles = new double[RobotConsts.JointsCount];
+  final double[] maxAngles = new double[RobotConsts.JointsCount];
+  final double[] maxVelocities = new double[RobotConsts.JointsCount];
+
+  /**
+   * Constructor, initializes the limits.
+   */
+  protected JointLimitGuard() {
+    for (int i = 0; i < RobotConsts.JointsCount; i++) {
+      minAngles[i] = Math.toRadians(RobotConsts.getAngleMin(i));
+      maxAngles[i] = Math.toRadians(RobotConsts.getAngleMax(i));
+    }
+    Arrays.fill(maxVelocities, DEFAULT_MAX_VELOCITY);
+  }
+
+  /**
+   * Creates the fastest implementation available in the running JVM.
+   *
+   * @return A vectorized guard, if available, otherwise a scalar one.
+   */
+  public static JointLimitGuard create() {
+    JointLimitGuard guard = createVector();
+    return guard != null ? guard : createScalar();
+  }
+
+  /**
+   * Creates the scalar implementation, which is always available.
+   *
+   * @return Guard looking at one joint per step.
+   */
+  public static JointLimitGuard createScalar() {
+    return new JointLimitGuard() {
+      @Override
+      public void apply(double[] commands, double[] angles, double cycleLength) {
+        limitScalar(commands, angles, 1 / cycleLength, 0);
+      }
+
+      @Override
+      public String getName() {
+        return "scalar";
+      }
+    };
+  }
+
+  /**
+   * Creates the implementation based on the Vector API.
+   *
+   * @return A vectorized guard, or null if it is not available.
+   */
+  public static JointLimitGuard createVector() {
+    try {
+      return (JointLimitGuard) Class.forName(VECTOR_GUARD)
+              .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // not compiled, or the JVM runs without module jdk.incubator.vector
+      return null;
+    }
+  }
+
+  /**
+   * Sets the range of a joint.
+   *
+   * @param jointNo Index number of the hinge joint, as defined by the
+   * constants in class RobotConsts.
+   * @param min Minimum angle in radians.
+   * @param max Maximum angle in radians.
+   */
+  public void setAngleLimits(int jointNo, double min, double max) {
+    minAngles[jointNo] = min;
+    maxAngles[jointNo] = max;
+  }
+
+  /**
+   * Sets the maximum velocity of a joint.
+   *
+   * @param jointNo Index number of the hinge joint, as defined by the
+   * constants in class RobotConsts.
+   * @param maxVelocity Maximum velocity in radians per second, in both
+   * directions.
+   */
+  public void setMaxVelocity(int jointNo, double maxVelocity) {
+    maxVelocities[jointNo] = maxVelocity;
+  }
+
+  /**
+   * Limits the commands of all joints.
+   *
+   * @param commands Velocities of all joints in the order of the constants in
+   * class RobotConsts, they are limited in place.
+   * @param angles Present angles of all joints.
+   * @param cycleLength Time in seconds, for which the commands are executed.
+   */
+  public abstract void apply(double[] commands, double[] angles, double cycleLength);
+
+  /**
+   * Returns the name of the implementation, e.g. for benchmark results.
+   *
+   * @return Short name.
+   */
+  public abstract String getName();
+
+  /**
+   * Limits the commands of the joints from the given one to the last one,
+   * one joint after the other, used by both implementations (the vectorized
+   * one for the joints, which do not fill a complete vector).
+   *
+   * @param rate Inverse of the cycle length.
+   * @param from Index of the first joint to limit.
+   */
+  final void limitScalar(double[] commands, double[] angles, double rate, int from) {
+    for (int i = from; i < RobotConsts.JointsCount; i++) {
+      // the velocities, which reach the limits within the cycle, but not
+      // beyond 0, if the joint is already beyond a limit
+      double upper = Math.max((maxAngles[i] - angles[i]) * rate, 0);
+      double lower = Math.min((minAngles[i] - angles[i]) * rate, 0);
+      double command = Math.max(Math.min(commands[i], upper), lower);
+      commands[i] = Math.max(Math.min(command, maxVelocities[i]), -maxVelocities[i]);
+    }
+  }
+}
@@ -0,0 +1,157 @@
+package agentIO.perceptorInputUtil;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Record of the malformed perceptors found in server messages.
+ *
+ * Counts the malformed perceptors per perceptor type, and keeps a copy of the
+ * raw bytes of the most recent ones. All memory is allocated in the
+ * constructor, so recording a malformed perceptor neither creates objects nor
+ * builds strings, and a server sending broken messages in every cycle does not
+ * slow down the agent. Strings are only built, when the record is read, e.g.
+ * by toString() after the agent has finished.
+ *
+ * The perceptor types are the constants of class PerceptorDecoder.
+ */
+public final class MalformedInputLog {
+
+  private final int[] counts;
+  private long total;
+
+  private final byte[][] samples;
+  private final int[] sampleLengths;
+  private final int[] samplePerceptors;
+  private final boolean[] sampleTruncated;
+  /** Index of the next sample to overwrite. */
+  private int nextSample;
+  private int sampleCount;
+
+  /**
+   * Constructor.
+   *
+   * @param maxSamples Number of malformed perceptors, whose bytes are kept.
+   * @param maxSampleLength Number of bytes kept per malformed perceptor, longer
+   * ones are truncated.
+   */
+  public MalformedInputLog(int maxSamples, int maxSampleLength) {
+    counts = new int[PerceptorDecoder.PERCEPTOR_COUNT + 1];
+    samples = new byte[maxSamples][maxSampleLength];
+    sampleLengths = new int[maxSamples];
+    samplePerceptors = new int[maxSamples];
+    sampleTruncated = new boolean[maxSamples];
+  }
+
+  /**
+   * Records a malformed perceptor.
+   *
+   * @param perceptor Perceptor type, or UNKNOWN_PERCEPTOR.
+   * @param message Buffer holding the message.
+   * @param start Offset of the first byte of the perceptor.
+   * @param end Offset behind the last byte of the perceptor.
+   */
+  public void record(int perceptor, byte[] message, int start, int end) {
+    counts[perceptor + 1]++;
+    total++;
+    if (samples.length == 0)
+      return;
+    int length = Math.min(end - start, samples[nextSample].length);
+    System.arraycopy(message, start, samples[nextSample], 0, length);
+    sampleLengths[nextSample] = length;
+    samplePerceptors[nextSample] = perceptor;
+    sampleTruncated[nextSample] = length < end - start;
+    nextSample = (nextSample + 1) % samples.length;
+    sampleCount = Math.min(sampleCount + 1, samples.length);
+  }
+
+  /**
+   * Returns the number of malformed perceptors of a type.
+   *
+   * @param perceptor Perceptor type, or UNKNOWN_PERCEPTOR for lists, which
+   * are not perceptors at all.
+   * @return Number of malformed perceptors since the start or the last reset.
+   */
+  public int getCount(int perceptor) {
+    return counts[perceptor + 1];
+  }
+
+  /**
+   * Returns the number of all malformed perceptors.
+   *
+   * @return Number of malformed perceptors since the start or the last reset.
+   */
+  public long getTotalCount() {
+    return total;
+  }
+
+  /**
+   * Returns the number of kept samples.
+   *
+   * @return Number of samples, at most the maximum given to the constructor.
+   */
+  public int getSampleCount() {
+    return sampleCount;
+  }
+
+  /**
+   * Returns the perceptor type of a sample.
+   *
+   * @param i Index of the sample, 0 is the oldest one.
+   * @return Perceptor type, or UNKNOWN_PERCEPTOR.
+   */
+  public int getSamplePerceptor(int i) {
+    return samplePerceptors[sampleIndex(i)];
+  }
+
+  /**
+   * Returns the raw content of a sample as String.
+   *
+   * @param i Index of the sample, 0 is the oldest one.
+   * @return The bytes of the malformed perceptor, followed by "..." if they
+   * have been truncated.
+   */
+  public String getSample(int i) {
+    int index = sampleIndex(i);
+    String sample = new String(samples[index], 0, sampleLengths[index], StandardCharsets.UTF_8);
+    return sampleTruncated[index] ? sample + "..." : sample;
+  }
+
+  /**
+   * Clears the counters and samples.
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length; i++)
+      counts[i] = 0;
+    total = 0;
+    nextSample = 0;
+    sampleCount = 0;
+  }
+
+  /**
+   * Returns a report of the counters and samples, for debug output.
+   *
+   * @return Multi-line text, or a single line if nothing has been recorded.
+   */
+  @Override
+  public String toString() {
+    if (total == 0)
+      return "No malformed perceptors.";
+    StringBuilder report = new StringBuilder();
+    report.append("Malformed perceptors: ").append(total).append('\n');
+    for (int p = PerceptorDecoder.UNKNOWN_PERCEPTOR; p < PerceptorDecoder.PERCEPTOR_COUNT; p++)
+      if (getCount(p) > 0)
+        report.append("  ").append(PerceptorDecoder.getPerceptorName(p))
+                .append(": ").append(getCount(p)).append('\n');
+    if (sampleCount > 0)
+      report.append("Last ").append(sampleCount).append(" samples:\n");
+    for (int i = 0; i < sampleCount; i++)
+      report.append("  ").append(getSample(i)).append('\n');
+    return report.toString();
+  }
+
+  private int sampleIndex(int i) {
+    if (i < 0 || i >= sampleCount)
+      throw new IndexOutOfBoundsException("No sample " + i);
+    return (nextSample - sampleCount + i + samples.length) % samples.length;
+  }
+}
@@ -0,0 +1,442 @@
+package agentIO.perceptorInputUtil;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Cursor over the raw bytes of a server message, used by the generated class
+ * PerceptorDecoder.
+ *
+ * A server message is a sequence of nested lists of tokens, like
+ * "(time (now 12.34))(HJ (n hj1) (ax -0.00))". The scanner walks the bytes
+ * directly, so no symbol tree, no substrings and no other objects have to be
+ * created while a message is decoded. Tokens are only described by their
+ * position in the buffer (tokenStart, tokenLength), numbers are parsed in
+ * place.
+ *
+ * When a message is set, it is classified by a StructuralClassifier into
+ * bitmasks of whitespace and delimiters. Whitespace, tokens and skipped lists
+ * are then passed by searching the next set bit in these masks, instead of
+ * comparing every byte with all delimiter characters.
+ *
+ * Malformed input never causes an exception, the methods return false or
+ * END instead, and the caller decides how to proceed.
+ *
+ * This class is not meant to be used by agent programmers, use class
+ * agentIO.PerceptorInput to access the perceptor values.
+ */
+public final class MessageScanner {
+
+  /** Result of next(): an opening bracket has been consumed. */
+  public static final int OPEN = 0;
+  /** Result of next(): a closing bracket has been consumed. */
+  public static final int CLOSE = 1;
+  /** Result of next(): a token has been consumed, see tokenStart. */
+  public static final int TOKEN = 2;
+  /** Result of next(): the end of the message has been reached. */
+  public static final int END = 3;
+
+  /** Exact powers of ten, used for the conversion of short decimal numbers. */
+  private static final double[] POWERS_OF_TEN = {
+    1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+    1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+  /** Largest mantissa, which can be represented exactly by a double. */
+  private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+  private final StructuralClassifier classifier;
+  private long[] whitespace = new long[0];
+  private long[] delimiters = new long[0];
+
+  private byte[] buffer = new byte[0];
+  private int offset;
+  private int position;
+  private int limit;
+  private int depth;
+
+  /** Start offset of the last read token in the buffer. */
+  public int tokenStart;
+  /** Length of the last read token in bytes. */
+  public int tokenLength;
+  /** Value of the last number read by nextReal(). */
+  public double real;
+
+  /**
+   * Creates a scanner using the fastest structural classifier available.
+   */
+  public MessageScanner() {
+    this(StructuralClassifier.getDefault());
+  }
+
+  /**
+   * Creates a scanner using a certain structural classifier.
+   *
+   * @param classifier Classifier for the messages, e.g.
+   * StructuralClassifier.getScalar() for comparisons.
+   */
+  public MessageScanner(StructuralClassifier classifier) {
+    this.classifier = classifier;
+  }
+
+  /**
+   * Starts scanning a new message.
+   *
+   * @param message Buffer holding the message, it is not copied.
+   * @param offset Index of the first byte of the message.
+   * @param length Number of bytes of the message.
+   */
+  public void reset(byte[] message, int offset, int length) {
+    buffer = message;
+    this.offset = offset;
+    position = offset;
+    limit = offset + length;
+    depth = 0;
+    tokenStart = offset;
+    tokenLength = 0;
+    int words = StructuralClassifier.wordCount(length);
+    if (whitespace.length < words) {
+      whitespace = new long[words];
+      delimiters = new long[words];
+    }
+    classifier.classify(message, offset, length, whitespace, delimiters);
+  }
+
+  /**
+   * Returns the buffer of the actual message.
+   *
+   * @return The buffer passed to reset(...).
+   */
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * Returns the current read position.
+   *
+   * @return Index of the next unread byte in the buffer.
+   */
+  public int getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns the end of the actual message.
+   *
+   * @return Index behind the last byte of the message in the buffer.
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the nesting level of the current read position.
+   *
+   * @return Number of lists opened but not yet closed, 0 between top level
+   * perceptors.
+   */
+  public int getDepth() {
+    return depth;
+  }
+
+  /**
+   * Reads the next item of the message.
+   *
+   * @return OPEN, CLOSE, TOKEN (the token is described by tokenStart and
+   * tokenLength) or END.
+   */
+  public int next() {
+    skipWhitespace();
+    if (position >= limit)
+      return END;
+    byte b = buffer[position];
+    if (b == '(') {
+      position++;
+      depth++;
+      return OPEN;
+    }
+    if (b == ')') {
+      position++;
+      depth--;
+      return CLOSE;
+    }
+    readToken();
+    return TOKEN;
+  }
+
+  /**
+   * Reads a token, which has to be the next item of the message.
+   *
+   * @return True, if a token has been read, false if the next item is a
+   * bracket or the message has ended. In this case nothing is consumed.
+   */
+  public boolean nextSymbol() {
+    skipWhitespace();
+    if (position >= limit || buffer[position] == '(' || buffer[position] == ')')
+      return false;
+    readToken();
+    return true;
+  }
+
+  /**
+   * Reads a number, which has to be the next item of the message.
+   *
+   * The value is stored in the field real. If the token is not a valid
+   * number (the server sometimes sends "nan"), real is set to NaN and the
+   * method still returns true.
+   *
+   * @return True, if a token has been read, false if the next item is a
+   * bracket or the message has ended.
+   */
+  public boolean nextReal() {
+    if (!nextSymbol())
+      return false;
+    real = parseReal(tokenStart, tokenLength);
+    return true;
+  }
+
+  /**
+   * Reads all tokens up to the closing bracket of the current list and
+   * describes them as one token (tokenStart, tokenLength), the closing
+   * bracket is not consumed.
+   *
+   * @return True, if at least one character has been read.
+   */
+  public boolean nextText() {
+    skipWhitespace();
+    int start = position;
+    int end = position;
+    int level = 0;
+    while (position < limit) {
+      byte b = buffer[position];
+      if (b == '(')
+        level++;
+      else if (b == ')') {
+        if (level == 0)
+          break;
+        level--;
+      }
+      position++;
+      if (b != ' ' && b != '\n' && b != '\r' && b != '\t')
+        end = position;
+    }
+    tokenStart = start;
+    tokenLength = end - start;
+    return tokenLength > 0;
+  }
+
+  /**
+   * Skips everything up to and including the closing bracket of the current
+   * list.
+   *
+   * @return True, if the list has been closed, false if the message ended
+   * before.
+   */
+  public boolean skipRest() {
+    return skipToDepth(depth - 1);
+  }
+
+  /**
+   * Skips everything until the given nesting level is reached.
+   *
+   * Used to get back to the top level after a malformed perceptor,
+   * skipToDepth(0) continues with the next perceptor. Superfluous closing
+   * brackets, which took the scanner below the target level, are ignored.
+   *
+   * @param targetDepth Nesting level to return to.
+   * @return True, if the level has been reached, false if the message ended
+   * before.
+   */
+  public boolean skipToDepth(int targetDepth) {
+    while (depth > targetDepth) {
+      position = nextBracket(position);
+      if (position >= limit)
+        return false;
+      if (buffer[position++] == '(')
+        depth++;
+      else
+        depth--;
+    }
+    depth = targetDepth;
+    return true;
+  }
+
+  /**
+   * Continues scanning at a given position on the top level.
+   *
+   * Used to jump over a perceptor, whose length is already known, without
+   * scanning its content.
+   *
+   * @param newPosition Index of the next byte to read, it has to lie between
+   * two top level perceptors.
+   */
+  public void skipTo(int newPosition) {
+    position = Math.min(newPosition, limit);
+    depth = 0;
+  }
+
+  /**
+   * Compares the last read token with a literal.
+   *
+   * @param literal ASCII bytes of the expected token.
+   * @return True, if the token equals the literal.
+   */
+  public boolean tokenEquals(byte[] literal) {
+    return equals(tokenStart, tokenLength, literal);
+  }
+
+  /**
+   * Compares a range of the message with a literal.
+   *
+   * @param start Start offset in the buffer.
+   * @param length Length of the range, a negative value stands for an absent
+   * value and never matches.
+   * @param literal ASCII bytes of the expected content.
+   * @return True, if the range equals the literal.
+   */
+  public boolean equals(int start, int length, byte[] literal) {
+    if (length != literal.length)
+      return false;
+    for (int i = 0; i < length; i++)
+      if (buffer[start + i] != literal[i])
+        return false;
+    return true;
+  }
+
+  /**
+   * Compares a range of the message with a String, which may contain only
+   * ASCII characters to be equal.
+   *
+   * @param start Start offset in the buffer.
+   * @param length Length of the range, a negative value stands for an absent
+   * value and never matches.
+   * @param text String to compare with.
+   * @return True, if the range equals the String.
+   */
+  public boolean equals(int start, int length, String text) {
+    if (length != text.length())
+      return false;
+    for (int i = 0; i < length; i++)
+      if (buffer[start + i] != text.charAt(i))
+        return false;
+    return true;
+  }
+
+  /**
+   * Returns a range of the message as String.
+   *
+   * This creates a new object, so use it only if really needed.
+   *
+   * @param start Start offset in the buffer.
+   * @param length Length of the range, a negative value stands for an absent
+   * value.
+   * @return The content of the range, or null if the value is absent.
+   */
+  public String string(int start, int length) {
+    if (length < 0)
+      return null;
+    return new String(buffer, start, length, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Converts a range of the message into a number.
+   *
+   * Short decimal numbers, like the server sends them, are converted without
+   * creating any objects. Other numbers are passed to Double.parseDouble(..).
+   *
+   * @param start Start offset in the buffer.
+   * @param length Length of the range.
+   * @return The number, or NaN if the range does not contain a valid number.
+   */
+  public double parseReal(int start, int length) {
+    int i = start;
+    int end = start + length;
+    boolean negative = false;
+    if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+      negative = buffer[i] == '-';
+      i++;
+    }
+    long mantissa = 0;
+    int fractionDigits = 0;
+    boolean point = false;
+    boolean digit = false;
+    for (; i < end; i++) {
+      int c = buffer[i];
+      if (c >= '0' && c <= '9') {
+        // cannot overflow, the mantissa was at most MAX_EXACT_MANTISSA
+        mantissa = mantissa * 10 + (c - '0');
+        if (mantissa > MAX_EXACT_MANTISSA)
+          return parseSlow(start, length);
+        digit = true;
+        if (point)
+          fractionDigits++;
+      } else if (c == '.' && !point) {
+        point = true;
+      } else {
+        // exponents, "nan", "inf" and garbage
+        return parseSlow(start, length);
+      }
+    }
+    if (!digit)
+      return Double.NaN;
+    if (fractionDigits >= POWERS_OF_TEN.length)
+      return parseSlow(start, length);
+    // mantissa and power of ten are exact doubles, so the division is
+    // correctly rounded, just as Double.parseDouble(..) would be
+    double value = mantissa / POWERS_OF_TEN[fractionDigits];
+    return negative ? -value : value;
+  }
+
+  private double parseSlow(int start, int length) {
+    try {
+      return Double.parseDouble(new String(buffer, start, length, StandardCharsets.US_ASCII));
+    } catch (NumberFormatException e) {
+      return Double.NaN;
+    }
+  }
+
+  private void readToken() {
+    int start = position;
+    position = nextDelimiter(position);
+    tokenStart = start;
+    tokenLength = position - start;
+  }
+
+  private void skipWhitespace() {
+    position = nextNonWhitespace(position);
+  }
+
+  /** Returns the index of the next delimiter at or behind from, or limit. */
+  private int nextDelimiter(int from) {
+    while (from < limit) {
+      int bit = (from - offset) & 63;
+      long mask = delimiters[(from - offset) >>> 6] >>> bit;
+      if (mask != 0)
+        return Math.min(from + Long.numberOfTrailingZeros(mask), limit);
+      from += 64 - bit;
+    }
+    return limit;
+  }
+
+  /** Returns the index of the next bracket at or behind from, or limit. */
+  private int nextBracket(int from) {
+    while (from < limit) {
+      int word = (from - offset) >>> 6;
+      int bit = (from - offset) & 63;
+      long mask = (delimiters[word] & ~whitespace[word]) >>> bit;
+      if (mask != 0)
+        return Math.min(from + Long.numberOfTrailingZeros(mask), limit);
+      from += 64 - bit;
+    }
+    return limit;
+  }
+
+  /** Returns the index of the next non-whitespace byte at or behind from, or limit. */
+  private int nextNonWhitespace(int from) {
+    while (from < limit) {
+      int bit = (from - offset) & 63;
+      long mask = ~whitespace[(from - offset) >>> 6] >>> bit;
+      if (mask != 0)
+        return Math.min(from + Long.numberOfTrailingZeros(mask), limit);
+      from += 64 - bit;
+    }
+    return limit;
+  }
+}
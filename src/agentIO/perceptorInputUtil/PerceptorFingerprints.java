@@ -0,0 +1,149 @@
+package agentIO.perceptorInputUtil;
+
+/**
+ * Remembers the raw bytes of the perceptors of previous server messages, to
+ * find perceptors which have not changed since then.
+ *
+ * Many perceptors are sent byte-identical in consecutive server cycles, e.g.
+ * the game state or the hinge joints of a robot standing still. Decoding them
+ * again gives the same values, so they can be skipped.
+ *
+ * The perceptors are identified by their type and their position among the
+ * perceptors of the same type in the message, e.g. the third HJ perceptor.
+ * Each of them is compared with the last one sent at the same position, which
+ * may be older than the previous message, if a perceptor is not sent in every
+ * cycle (like the vision perceptor). The fingerprint of a perceptor is a copy
+ * of its bytes, so a match is exact and never a false positive.
+ *
+ * Usage: call beginMessage() for every message, then for each perceptor first
+ * unchangedLength(...) and, if it has to be decoded, store(...) after it has
+ * been decoded successfully.
+ */
+public final class PerceptorFingerprints {
+
+  private static final int INITIAL_CAPACITY = 64;
+
+  /** Bytes of the perceptors, indexed by type and position. */
+  private final byte[][][] bytes;
+  /** Length of the stored perceptors, -1 for nothing stored. */
+  private final int[][] lengths;
+  /** Number of perceptors of each type in the actual message. */
+  private final int[] counts;
+  /** Perceptor types to be compared at all. */
+  private final boolean[] enabled;
+
+  /**
+   * Constructor.
+   *
+   * @param perceptorCount Number of perceptor types.
+   */
+  public PerceptorFingerprints(int perceptorCount) {
+    bytes = new byte[perceptorCount][][];
+    lengths = new int[perceptorCount][];
+    counts = new int[perceptorCount];
+    enabled = new boolean[perceptorCount];
+    for (int i = 0; i < perceptorCount; i++) {
+      bytes[i] = new byte[0][];
+      lengths[i] = new int[0];
+    }
+  }
+
+  /**
+   * Sets, whether perceptors of a type are compared with previous messages.
+   *
+   * Perceptors should only be enabled, if decoding them again would not
+   * change anything, e.g. hear perceptors have to be decoded in every cycle
+   * they are sent.
+   *
+   * @param perceptor Perceptor type.
+   * @param compare True, to compare and skip perceptors of this type.
+   */
+  public void setEnabled(int perceptor, boolean compare) {
+    enabled[perceptor] = compare;
+  }
+
+  /**
+   * Starts a new message.
+   */
+  public void beginMessage() {
+    for (int i = 0; i < counts.length; i++)
+      counts[i] = 0;
+  }
+
+  /**
+   * Checks, whether a perceptor equals the last one of the same type and
+   * position.
+   *
+   * If it does, the perceptor is counted and must not be stored.
+   *
+   * @param perceptor Perceptor type.
+   * @param message Buffer holding the message.
+   * @param start Offset of the opening bracket of the perceptor.
+   * @param limit Offset behind the last byte of the message.
+   * @return Length of the perceptor in bytes, if it is unchanged, otherwise 0.
+   */
+  public int unchangedLength(int perceptor, byte[] message, int start, int limit) {
+    if (!enabled[perceptor])
+      return 0;
+    int index = counts[perceptor];
+    if (index >= lengths[perceptor].length)
+      return 0;
+    int length = lengths[perceptor][index];
+    if (length <= 0 || length > limit - start)
+      return 0;
+    byte[] previous = bytes[perceptor][index];
+    for (int i = 0; i < length; i++)
+      if (message[start + i] != previous[i])
+        return 0;
+    counts[perceptor]++;
+    return length;
+  }
+
+  /**
+   * Stores a decoded perceptor for comparison with later messages.
+   *
+   * @param perceptor Perceptor type.
+   * @param message Buffer holding the message.
+   * @param start Offset of the opening bracket of the perceptor.
+   * @param end Offset behind the closing bracket of the perceptor.
+   */
+  public void store(int perceptor, byte[] message, int start, int end) {
+    if (!enabled[perceptor])
+      return;
+    int index = counts[perceptor]++;
+    if (index >= lengths[perceptor].length)
+      grow(perceptor, index + 1);
+    int length = end - start;
+    byte[] copy = bytes[perceptor][index];
+    if (copy == null || copy.length < length) {
+      copy = new byte[Math.max(length, INITIAL_CAPACITY)];
+      bytes[perceptor][index] = copy;
+    }
+    System.arraycopy(message, start, copy, 0, length);
+    lengths[perceptor][index] = length;
+  }
+
+  /**
+   * Forgets the stored perceptors of a type, e.g. after a malformed one, whose
+   * values have been decoded partially.
+   *
+   * @param perceptor Perceptor type.
+   */
+  public void forget(int perceptor) {
+    int[] l = lengths[perceptor];
+    for (int i = 0; i < l.length; i++)
+      l[i] = -1;
+  }
+
+  private void grow(int perceptor, int minSize) {
+    int size = Math.max(minSize, lengths[perceptor].length * 2);
+    byte[][] newBytes = new byte[size][];
+    int[] newLengths = new int[size];
+    System.arraycopy(bytes[perceptor], 0, newBytes, 0, bytes[perceptor].length);
+    System.arraycopy(lengths[perceptor], 0, newLengths, 0, lengths[perceptor].length);
+    for (int i = lengths[perceptor].length; i < size; i++)
+      newLengths[i] = -1;
+    bytes[perceptor] = newBytes;
+    lengths[perceptor] = newLengths;
+  }
+}
@@ -0,0 +1,145 @@
+package agentIO.perceptorInputUtil;
+
+/**
+ * Classifies the bytes of a server message into structural bitmasks, which
+ * are walked by MessageScanner instead of looking at every single byte.
+ *
+ * For every 64 bytes of the message there is one long in each mask, bit i of
+ * word w stands for the byte at offset + 64 * w + i:
+ * - whitespace: the byte is a space or a control character (0 to 32).
+ * - delimiters: the byte is whitespace or a bracket, so it ends a token.
+ * The brackets are the delimiters, that are no whitespace.
+ *
+ * There are two implementations: VectorStructuralClassifier uses the Vector
+ * API (module jdk.incubator.vector, Java 16 or newer) to classify 16 to 64
+ * bytes per step, depending on the hardware. It is compiled only if the build
+ * runs on such a Java version, and it is used only if the JVM has been
+ * started with the option "--add-modules jdk.incubator.vector". Otherwise
+ * the scalar implementation of this class is used.
+ */
+public abstract class StructuralClassifier {
+
+  private static final String VECTOR_CLASSIFIER =
+          "agentIO.perceptorInputUtil.VectorStructuralClassifier";
+
+  /** Classes of bytes: bit 0 for whitespace, bit 1 for delimiters. */
+  private static final byte[] BYTE_CLASSES = new byte[256];
+
+  static {
+    for (int b = 0; b <= ' '; b++)
+      BYTE_CLASSES[b] = 3;
+    BYTE_CLASSES['('] = 2;
+    BYTE_CLASSES[')'] = 2;
+  }
+
+  private static final StructuralClassifier SCALAR = new StructuralClassifier() {
+    @Override
+    public void classify(byte[] message, int offset, int length,
+            long[] whitespace, long[] delimiters) {
+      classifyScalar(message, offset, 0, length, whitespace, delimiters);
+    }
+
+    @Override
+    public String getName() {
+      return "scalar";
+    }
+  };
+
+  private static final StructuralClassifier VECTOR = loadVector();
+
+  /**
+   * Returns the fastest implementation available in the running JVM.
+   *
+   * @return The vectorized classifier, if available, otherwise the scalar one.
+   */
+  public static StructuralClassifier getDefault() {
+    return VECTOR != null ? VECTOR : SCALAR;
+  }
+
+  /**
+   * Returns the scalar implementation, which is always available.
+   *
+   * @return Classifier looking at one byte per step.
+   */
+  public static StructuralClassifier getScalar() {
+    return SCALAR;
+  }
+
+  /**
+   * Returns the implementation based on the Vector API.
+   *
+   * @return The vectorized classifier, or null if it is not available.
+   */
+  public static StructuralClassifier getVector() {
+    return VECTOR;
+  }
+
+  /**
+   * Returns the number of mask words needed for a message.
+   *
+   * @param length Length of the message in bytes.
+   * @return Number of longs per mask.
+   */
+  public static int wordCount(int length) {
+    return (length + 63) >>> 6;
+  }
+
+  /**
+   * Classifies a message.
+   *
+   * The first wordCount(length) words of both masks are overwritten, bits
+   * behind the end of the message are 0.
+   *
+   * @param message Buffer holding the message.
+   * @param offset Index of the first byte of the message.
+   * @param length Number of bytes of the message.
+   * @param whitespace Mask of whitespace bytes, filled by this method.
+   * @param delimiters Mask of whitespace and bracket bytes, filled by this
+   * method.
+   */
+  public abstract void classify(byte[] message, int offset, int length,
+          long[] whitespace, long[] delimiters);
+
+  /**
+   * Returns the name of the implementation, e.g. for benchmark results.
+   *
+   * @return Short name.
+   */
+  public abstract String getName();
+
+  /**
+   * Classifies a part of a message one byte after the other, used by both
+   * implementations (the vectorized one for the rest of the message, which
+   * does not fill a complete vector).
+   *
+   * @param from Index of the first byte to classify, relative to offset and a
+   * multiple of 64.
+   * @param to Index behind the last byte to classify, relative to offset.
+   */
+  static void classifyScalar(byte[] message, int offset, int from, int to,
+          long[] whitespace, long[] delimiters) {
+    for (int word = from >>> 6; from < to; word++) {
+      int end = Math.min(from + 64, to);
+      long ws = 0;
+      long del = 0;
+      for (int i = from; i < end; i++) {
+        int c = BYTE_CLASSES[message[offset + i] & 0xFF];
+        ws |= (long) (c & 1) << (i & 63);
+        del |= (long) (c >>> 1) << (i & 63);
+      }
+      whitespace[word] = ws;
+      delimiters[word] = del;
+      from = end;
+    }
+  }
+
+  private static StructuralClassifier loadVector() {
+    try {
+      return (StructuralClassifier) Class.forName(VECTOR_CLASSIFIER)
+              .getDeclaredConstructor().newInstance();
+    } catch (ReflectiveOperationException | LinkageError e) {
+      // not compiled, or the JVM runs without module jdk.incubator.vector
+      return null;
+    }
+  }
+}
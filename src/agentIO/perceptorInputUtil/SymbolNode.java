@@ -57,23 +57,35 @@ public class SymbolNode
 	@Override
 	public String toString()
 	{
-		String ret = "";
+		StringBuilder ret = new StringBuilder();
+		appendTo(ret);
+		return ret.toString();
+	}
 
-		if (children == null || children.length == 0)
-			return "";
+	/**
+	 * Appends the string representation of this node to a builder, so that
+	 * nested nodes are written into one buffer instead of concatenating the
+	 * strings of all levels.
+	 * 
+	 * @param ret Builder to append to
+	 */
+	private void appendTo(StringBuilder ret)
+	{
+		if (children == null)
+			return;
 
 		for (int i = 0; i < children.length; i++) {
 			Object child = children[i];
 
 			if (i > 0)
-				ret += " ";
+				ret.append(' ');
 
-			if (child instanceof SymbolNode)
-				ret += "(" + child.toString() + ")";
-			else
-				ret += child.toString();
+			if (child instanceof SymbolNode) {
+				ret.append('(');
+				((SymbolNode) child).appendTo(ret);
+				ret.append(')');
+			} else
+				ret.append(child);
 		}
-
-		return ret;
 	}
 }
@@ -0,0 +1,123 @@
+package agentIO.perceptorInputUtil;
+
+import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
+import org.apache.commons.math3.util.FastMath;
+
+/**
+ * Mutable holder of a 3D perceptor value, which is reused in every cycle.
+ *
+ * PerceptorInput stores the decoded values in objects of this class instead
+ * of creating a new Vector3D for each value and cycle. A Vector3D is only
+ * created, when the value is requested by get(), and it is kept as long as
+ * the value does not change. So values which are not used, or do not change,
+ * cost no allocation.
+ */
+public final class VectorValue {
+
+  private double x;
+  private double y;
+  private double z;
+  private boolean valid;
+  /** The actual value as Vector3D, or null if it has not been requested. */
+  private Vector3D vector;
+
+  /**
+   * Sets the value from cartesian coordinates.
+   *
+   * @param x X-coordinate.
+   * @param y Y-coordinate.
+   * @param z Z-coordinate.
+   */
+  public void set(double x, double y, double z) {
+    if (Double.doubleToRawLongBits(x) != Double.doubleToRawLongBits(this.x)
+            || Double.doubleToRawLongBits(y) != Double.doubleToRawLongBits(this.y)
+            || Double.doubleToRawLongBits(z) != Double.doubleToRawLongBits(this.z)) {
+      this.x = x;
+      this.y = y;
+      this.z = z;
+      vector = null;
+    }
+    valid = true;
+  }
+
+  /**
+   * Sets the value from polar coordinates as sent by the vision perceptor.
+   *
+   * The result equals new Vector3D(distance, new Vector3D(azimuth, elevation))
+   * with the angles in radians.
+   *
+   * @param distance Distance in meters.
+   * @param azimuth Horizontal angle in degrees.
+   * @param elevation Vertical angle in degrees.
+   */
+  public void setPolar(double distance, double azimuth, double elevation) {
+    if (Double.isNaN(distance) || Double.isNaN(azimuth) || Double.isNaN(elevation)) {
+      // seems that the server sometimes sends NAN
+      clear();
+      return;
+    }
+    double alpha = Math.toRadians(azimuth);
+    double delta = Math.toRadians(elevation);
+    double cosDelta = FastMath.cos(delta);
+    set(distance * (FastMath.cos(alpha) * cosDelta),
+            distance * (FastMath.sin(alpha) * cosDelta),
+            distance * FastMath.sin(delta));
+  }
+
+  /**
+   * Marks the value as absent.
+   */
+  public void clear() {
+    valid = false;
+  }
+
+  /**
+   * Returns, whether the value is present.
+   *
+   * @return False after clear(), true after a value has been set.
+   */
+  public boolean isValid() {
+    return valid;
+  }
+
+  /**
+   * Returns the x-coordinate of the value, if it is valid.
+   *
+   * @return The coordinate set last.
+   */
+  public double getX() {
+    return x;
+  }
+
+  /**
+   * Returns the y-coordinate of the value, if it is valid.
+   *
+   * @return The coordinate set last.
+   */
+  public double getY() {
+    return y;
+  }
+
+  /**
+   * Returns the z-coordinate of the value, if it is valid.
+   *
+   * @return The coordinate set last.
+   */
+  public double getZ() {
+    return z;
+  }
+
+  /**
+   * Returns the value as Vector3D.
+   *
+   * @return The same object as long as the value does not change, or null if
+   * the value is absent.
+   */
+  public Vector3D get() {
+    if (!valid)
+      return null;
+    if (vector == null)
+      vector = new Vector3D(x, y, z);
+    return vector;
+  }
+}
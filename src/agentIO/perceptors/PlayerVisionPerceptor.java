@@ -1,6 +1,7 @@
 package agentIO.perceptors;
 
 import java.util.HashMap;
+import java.util.Map;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 import util.Logger;
 import util.RobotConsts.BodyPartName;
@@ -40,6 +41,19 @@ public class PlayerVisionPerceptor {
     for (String s : bodyParts.keySet()) 
       this.bodyParts.put(getBodyPartName(s), bodyParts.get(s));
   }
+  
+  /**
+   * Constructor for body parts, which are already identified by their names.
+   * 
+   * @param team Team of the player.
+   * @param ID Player number.
+   * @param bodyParts Coordinates of the seen body parts, the map is copied.
+   */
+  public PlayerVisionPerceptor(String team, String ID, Map<BodyPartName, Vector3D> bodyParts){
+    this.team = team;
+    this.ID = ID;
+    this.bodyParts = new HashMap<>(bodyParts);
+  }
  
 /**
  * This class represents the raw value for a line from the vision perceptor, 
@@ -0,0 +1,135 @@
+package benchmarks;
+
+import agentIO.EffectorOutput;
+import agentIO.PerceptorInput;
+import agentIO.ServerPlayback;
+import agentIO.effectorOutputUtil.JointLimitGuard;
+import directMotion.LookAroundMotion;
+import java.io.IOException;
+import keyframeMotion.KeyframeMotion;
+import util.Logger;
+import util.RobotConsts;
+
+/**
+ * Measures the act side of the agent loop: time and allocated bytes per
+ * cycle for
+ * - encoding and sending 22 joint commands (setAllJointCommands(...) and
+ * sendAgentMessage()), with the default settings, with delta suppression and
+ * 3 digits, and with the joint limit guard
+ * - KeyframeMotion.executeKeyframeSequence() while walking forward
+ * - LookAroundMotion.look()
+ * - a complete act() like in Agent_SimpleSoccer: keyframe motion, look around
+ * and sending
+ * The motions read the perceptor values of recorded frames, so the measured
+ * times include PerceptorInput.update(), which is measured alone as
+ * reference. The agent messages are discarded by ServerPlayback.
+ *
+ * Usage: java benchmarks.ActBenchmark [file]
+ * The file contains one server message per line, as written by
+ * ServerCommunication.recordServerMessages(...). Default is the sample file
+ * tools/frames/sample.txt of the project. The keyframe files are read from
+ * the folder keyframes of the project, so start it in the project folder.
+ */
+public class ActBenchmark {
+
+  private static final String DEFAULT_FRAMES = "tools/frames/sample.txt";
+
+  public static void main(String[] args) throws IOException {
+    ServerPlayback playback = new ServerPlayback(args.length > 0 ? args[0] : DEFAULT_FRAMES);
+    final PerceptorInput percIn = new PerceptorInput(playback);
+    final EffectorOutput effOut = new EffectorOutput(playback);
+    final EffectorOutput compactOut = new EffectorOutput(playback);
+    compactOut.setDeltaSuppression(true);
+    compactOut.setPrecision(3);
+    final EffectorOutput guardedOut = new EffectorOutput(playback);
+    guardedOut.setJointLimitGuard(JointLimitGuard.create(), percIn);
+    final Logger log = new Logger();
+    final KeyframeMotion kfMotion = new KeyframeMotion(effOut, percIn, log);
+    final LookAroundMotion lookAround = new LookAroundMotion(percIn, effOut, log);
+    int operations = playback.getMessageCount() * 100;
+    // some velocities, which change from cycle to cycle in a few joints
+    final double[] commands = new double[RobotConsts.JointsCount];
+    for (int i = 0; i < commands.length; i++)
+      commands[i] = 0.1 * (i - 11);
+
+    percIn.update();
+
+    run(new Benchmark("update()") {
+      @Override
+      long operation(int i) {
+        percIn.update();
+        return (long) percIn.getServerTime();
+      }
+    }, operations);
+    run(new Benchmark("send 22 commands") {
+      @Override
+      long operation(int i) {
+        commands[i % 4] = 0.001 * (i & 1023);
+        effOut.setAllJointCommands(commands);
+        effOut.sendAgentMessage();
+        return i;
+      }
+    }, operations);
+    run(new Benchmark("send 22 commands, delta, 3 digits") {
+      @Override
+      long operation(int i) {
+        commands[i % 4] = 0.001 * (i & 1023);
+        compactOut.setAllJointCommands(commands);
+        compactOut.sendAgentMessage();
+        return i;
+      }
+    }, operations);
+    System.out.println("joint limit guard: " + JointLimitGuard.create().getName());
+    run(new Benchmark("send 22 commands, limit guard") {
+      @Override
+      long operation(int i) {
+        commands[i % 4] = 0.001 * (i & 1023);
+        guardedOut.setAllJointCommands(commands);
+        guardedOut.sendAgentMessage();
+        return i;
+      }
+    }, operations);
+    run(new Benchmark("update(), keyframe motion") {
+      @Override
+      long operation(int i) {
+        percIn.update();
+        walk(kfMotion);
+        return (long) percIn.getServerTime();
+      }
+    }, operations);
+    run(new Benchmark("update(), look around") {
+      @Override
+      long operation(int i) {
+        percIn.update();
+        lookAround.look();
+        return (long) percIn.getServerTime();
+      }
+    }, operations);
+    run(new Benchmark("update(), act()") {
+      @Override
+      long operation(int i) {
+        percIn.update();
+        walk(kfMotion);
+        lookAround.look();
+        effOut.sendAgentMessage();
+        return (long) percIn.getServerTime();
+      }
+    }, operations);
+  }
+
+  /**
+   * Executes the keyframe motion, and starts the next steps forward when the
+   * last ones are finished.
+   */
+  private static void walk(KeyframeMotion kfMotion) {
+    if (kfMotion.ready())
+      kfMotion.setWalkForward();
+    kfMotion.executeKeyframeSequence();
+  }
+
+  private static void run(Benchmark benchmark, int operations) {
+    benchmark.measure(operations);
+    System.out.printf("%-40s %10.1f bytes/op%n", benchmark.getName(),
+            benchmark.allocatedBytes(operations));
+  }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Simple time measurement for the benchmarks in this package.
+ * 
+ * A benchmark runs its operation some times to let the JIT compiler optimize 
+ * it (warm up), and then measures several rounds. The result is the median 
+ * time per operation over the rounds, which is less disturbed by garbage 
+ * collection or other processes than the average. 
+ * 
+ * This is no replacement for a benchmark harness like JMH, but it needs no 
+ * libraries and is good enough to compare implementations on the same machine.
+ */
+abstract class Benchmark {
+  
+  private static final int WARMUP_ROUNDS = 10;
+  private static final int ROUNDS = 15;
+  
+  /** Results of the operations, so that the JIT cannot remove them. */
+  static volatile long sink;
+  
+  private final String name;
+  
+  /**
+   * Constructor.
+   * 
+   * @param name Name of the benchmark, printed with the result.
+   */
+  Benchmark(String name) {
+    this.name = name;
+  }
+  
+  /**
+   * Returns the name of the benchmark.
+   * 
+   * @return Name printed with the result.
+   */
+  String getName() {
+    return name;
+  }
+  
+  /**
+   * Runs the measured operation once. 
+   * 
+   * @param i Number of the operation in the actual round.
+   * @return Any value depending on the work done.
+   */
+  abstract long operation(int i);
+  
+  /**
+   * Measures the operation and prints the result.
+   * 
+   * @param operations Number of operations per round.
+   * @return Median time per operation in nanoseconds.
+   */
+  double measure(int operations) {
+    for (int r = 0; r < WARMUP_ROUNDS; r++)
+      round(operations);
+    double[] results = new double[ROUNDS];
+    for (int r = 0; r < ROUNDS; r++)
+      results[r] = round(operations);
+    Arrays.sort(results);
+    double median = results[ROUNDS / 2];
+    System.out.printf("%-40s %10.1f ns/op%n", name, median);
+    return median;
+  }
+  
+  /**
+   * Measures the memory allocated by the operation.
+   * 
+   * Uses the allocation counter of the HotSpot JVM, so call it after 
+   * measure(...), when the operation has been compiled.
+   * 
+   * @param operations Number of operations to run.
+   * @return Bytes allocated by the current thread per operation.
+   */
+  double allocatedBytes(int operations) {
+    com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    long thread = Thread.currentThread().getId();
+    long before = threads.getThreadAllocatedBytes(thread);
+    long result = 0;
+    for (int i = 0; i < operations; i++)
+      result += operation(i);
+    long allocated = threads.getThreadAllocatedBytes(thread) - before;
+    sink += result;
+    return (double) allocated / operations;
+  }
+  
+  private double round(int operations) {
+    long result = 0;
+    long start = System.nanoTime();
+    for (int i = 0; i < operations; i++)
+      result += operation(i);
+    long time = System.nanoTime() - start;
+    sink += result;
+    return (double) time / operations;
+  }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import agentIO.PerceptorInput;
+import agentIO.PerceptorSnapshot;
+import agentIO.ServerPlayback;
+import java.io.IOException;
+import util.FieldConsts;
+
+/**
+ * Measures PerceptorInput.update() on recorded frames: time and allocated
+ * bytes per cycle, without reading the values, reading them by the getters,
+ * and reading them from the snapshot.
+ *
+ * Usage: java benchmarks.PerceptorBenchmark [file]
+ * The file contains one server message per line, as written by
+ * ServerCommunication.recordServerMessages(...). Default is the sample file
+ * tools/frames/sample.txt of the project.
+ */
+public class PerceptorBenchmark {
+
+  private static final String DEFAULT_FRAMES = "tools/frames/sample.txt";
+
+  public static void main(String[] args) throws IOException {
+    ServerPlayback playback = new ServerPlayback(args.length > 0 ? args[0] : DEFAULT_FRAMES);
+    final PerceptorInput percIn = new PerceptorInput(playback);
+    int operations = playback.getMessageCount() * 100;
+
+    Benchmark update = new Benchmark("update()") {
+      @Override
+      long operation(int i) {
+        percIn.update();
+        return (long) percIn.getServerTime();
+      }
+    };
+    Benchmark updateAndRead = new Benchmark("update() and all getters") {
+      @Override
+      long operation(int i) {
+        percIn.update();
+        return readAll(percIn);
+      }
+    };
+    Benchmark updateAndSnapshot = new Benchmark("update() and snapshot") {
+      @Override
+      long operation(int i) {
+        percIn.update();
+        return readSnapshot(percIn.getSnapshot());
+      }
+    };
+
+    update.measure(operations);
+    System.out.printf("%-40s %10.1f bytes/op%n", "update()", update.allocatedBytes(operations));
+    updateAndRead.measure(operations);
+    System.out.printf("%-40s %10.1f bytes/op%n", "update() and all getters",
+            updateAndRead.allocatedBytes(operations));
+    updateAndSnapshot.measure(operations);
+    System.out.printf("%-40s %10.1f bytes/op%n", "update() and snapshot",
+            updateAndSnapshot.allocatedBytes(operations));
+  }
+
+  private static long readAll(PerceptorInput percIn) {
+    long result = 0;
+    result += percIn.getGyro() != null ? 1 : 0;
+    result += percIn.getAcc() != null ? 1 : 0;
+    result += percIn.getFrLeft() != null ? 1 : 0;
+    result += percIn.getFrRight() != null ? 1 : 0;
+    result += percIn.getGameState() != null ? 1 : 0;
+    result += percIn.getBall() != null ? 1 : 0;
+    result += percIn.getLines() != null ? percIn.getLines().size() : 0;
+    result += percIn.getPlayerPositions() != null ? percIn.getPlayerPositions().size() : 0;
+    result += percIn.getHears() != null ? percIn.getHears().size() : 0;
+    for (FieldConsts.GoalPostID id : FieldConsts.GoalPostID.values())
+      result += percIn.getGoalPost(id) != null ? 1 : 0;
+    for (FieldConsts.FlagID id : FieldConsts.FlagID.values())
+      result += percIn.getFlag(id) != null ? 1 : 0;
+    return result;
+  }
+
+  private static long readSnapshot(PerceptorSnapshot snapshot) {
+    double result = snapshot.gyro(PerceptorSnapshot.X) + snapshot.acc(PerceptorSnapshot.Z);
+    for (int foot = PerceptorSnapshot.LEFT_FOOT; foot <= PerceptorSnapshot.RIGHT_FOOT; foot++)
+      if (snapshot.hasForce(foot))
+        result += snapshot.force(foot, PerceptorSnapshot.Z);
+    for (int i = 0; i < PerceptorSnapshot.OBJECT_COUNT; i++)
+      if (snapshot.isVisible(i))
+        result += snapshot.distance(i) + snapshot.azimuth(i) + snapshot.elevation(i);
+    return (long) result;
+  }
+}
@@ -0,0 +1,119 @@
+package benchmarks;
+
+import agentIO.perceptorInputUtil.IllegalSymbolInputException;
+import agentIO.perceptorInputUtil.MessageScanner;
+import agentIO.perceptorInputUtil.StructuralClassifier;
+import agentIO.perceptorInputUtil.SymbolTreeParser;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Compares the structural classifiers for server messages on recorded frames.
+ *
+ * Measured are the classification alone and the complete tokenization of a
+ * message (walking all brackets and tokens with MessageScanner), each with the
+ * scalar and the vectorized classifier. The old SymbolTreeParser is measured
+ * as reference.
+ *
+ * Usage: java benchmarks.ScanBenchmark [file]
+ * The file contains one server message per line, as written by
+ * ServerCommunication.recordServerMessages(...). Default is the sample file
+ * tools/frames/sample.txt of the project.
+ * To measure the vectorized classifier, the JVM has to be started with the
+ * option "--add-modules jdk.incubator.vector", otherwise it is reported as
+ * not available.
+ */
+public class ScanBenchmark {
+
+  private static final String DEFAULT_FRAMES = "tools/frames/sample.txt";
+
+  public static void main(String[] args) throws IOException {
+    byte[][] frames = readFrames(args.length > 0 ? args[0] : DEFAULT_FRAMES);
+    int bytes = 0;
+    for (byte[] f : frames)
+      bytes += f.length;
+    System.out.println(frames.length + " frames, " + bytes / frames.length
+            + " bytes per frame on average");
+
+    StructuralClassifier vector = StructuralClassifier.getVector();
+    if (vector == null)
+      System.out.println("Vectorized classifier not available, start the JVM with "
+              + "--add-modules jdk.incubator.vector");
+
+    int operations = frames.length * 100;
+    classify(StructuralClassifier.getScalar(), frames).measure(operations);
+    if (vector != null)
+      classify(vector, frames).measure(operations);
+    tokenize(StructuralClassifier.getScalar(), frames).measure(operations);
+    if (vector != null)
+      tokenize(vector, frames).measure(operations);
+    parseSymbolTree(frames).measure(operations);
+  }
+
+  private static byte[][] readFrames(String fileName) throws IOException {
+    List<String> lines = Files.readAllLines(Paths.get(fileName), StandardCharsets.UTF_8);
+    byte[][] frames = new byte[lines.size()][];
+    for (int i = 0; i < frames.length; i++)
+      frames[i] = lines.get(i).getBytes(StandardCharsets.UTF_8);
+    return frames;
+  }
+
+  private static Benchmark classify(final StructuralClassifier classifier,
+          final byte[][] frames) {
+    return new Benchmark("classify, " + classifier.getName()) {
+      long[] whitespace = new long[1];
+      long[] delimiters = new long[1];
+
+      @Override
+      long operation(int i) {
+        byte[] frame = frames[i % frames.length];
+        int words = StructuralClassifier.wordCount(frame.length);
+        if (whitespace.length < words) {
+          whitespace = new long[words];
+          delimiters = new long[words];
+        }
+        classifier.classify(frame, 0, frame.length, whitespace, delimiters);
+        return delimiters[0];
+      }
+    };
+  }
+
+  private static Benchmark tokenize(StructuralClassifier classifier,
+          final byte[][] frames) {
+    final MessageScanner scanner = new MessageScanner(classifier);
+    return new Benchmark("tokenize, " + classifier.getName()) {
+      @Override
+      long operation(int i) {
+        byte[] frame = frames[i % frames.length];
+        scanner.reset(frame, 0, frame.length);
+        long result = 0;
+        for (;;) {
+          int item = scanner.next();
+          if (item == MessageScanner.END)
+            return result;
+          result += scanner.tokenLength;
+        }
+      }
+    };
+  }
+
+  private static Benchmark parseSymbolTree(final byte[][] frames) {
+    final SymbolTreeParser parser = new SymbolTreeParser();
+    final String[] messages = new String[frames.length];
+    for (int i = 0; i < frames.length; i++)
+      messages[i] = new String(frames[i], StandardCharsets.UTF_8);
+    return new Benchmark("SymbolTreeParser (reference)") {
+      @Override
+      long operation(int i) {
+        try {
+          return parser.parse("(" + messages[i % messages.length] + ")").children.length;
+        } catch (IllegalSymbolInputException e) {
+          return 0;
+        }
+      }
+    };
+  }
+}
@@ -3,6 +3,7 @@ package directMotion;
 import agentIO.EffectorOutput;
 import agentIO.PerceptorInput;
 import util.Logger;
+import static agentIO.EffectorOutput.HEAD_LAYER;
 import static util.RobotConsts.NeckPitch;
 import static util.RobotConsts.NeckYaw;
 
@@ -34,9 +35,10 @@ import static util.RobotConsts.NeckYaw;
  * an agent program. 
  * 
  * Using LookAroundMotion together with other motion classes: 
- * The agent class should take care, that look() is the last called method, that 
- * sets the neck joint commands. Otherwise the looking motion can be interrupted. 
- * An example shows the correct cooperation with another motion class: 
+ * The neck joint commands are set in the head layer of EffectorOutput (see 
+ * EffectorOutput.HEAD_LAYER), so they win over the commands of other motion 
+ * classes like KeyframeMotion, no matter in which order the motions are 
+ * called. An example shows the cooperation with another motion class: 
  * Agent_SimpleSoccer in package examples.agentSimpleSoccer.
  */
 public class LookAroundMotion {
@@ -83,34 +85,34 @@ public class LookAroundMotion {
             if ( (pitch <= -40) ) 
               nextPose = HeadPose.D_CENTER_L;
             else 
-              effOut.setJointCommand(NeckPitch, -VELOCITY);
+              effOut.setJointCommand(HEAD_LAYER, NeckPitch, -VELOCITY);
             break;
           case D_CENTER_L:
             if ( Math.abs(pitch) <= 5)
-            {effOut.setJointCommand(NeckPitch, 0);
+            {effOut.setJointCommand(HEAD_LAYER, NeckPitch, 0);
               nextPose = HeadPose.LEFT;
             }
             else 
-              effOut.setJointCommand(NeckPitch, VELOCITY);
+              effOut.setJointCommand(HEAD_LAYER, NeckPitch, VELOCITY);
             break;
           case LEFT:
             if ( (yaw >= 54) ) 
               nextPose = HeadPose.RIGHT;
             else 
-              effOut.setJointCommand(NeckYaw, VELOCITY);
+              effOut.setJointCommand(HEAD_LAYER, NeckYaw, VELOCITY);
             break;
           case RIGHT:
             if ( yaw <= -54 )
               nextPose = HeadPose.R_CENTER_D;
             else 
-              effOut.setJointCommand(NeckYaw, -VELOCITY);
+              effOut.setJointCommand(HEAD_LAYER, NeckYaw, -VELOCITY);
             break;
           case R_CENTER_D:
             if ( Math.abs(yaw) <= 5 ) 
-            {effOut.setJointCommand(NeckYaw, 0);   
+            {effOut.setJointCommand(HEAD_LAYER, NeckYaw, 0);   
               nextPose = HeadPose.DOWN;}
             else 
-              effOut.setJointCommand(NeckYaw, VELOCITY);
+              effOut.setJointCommand(HEAD_LAYER, NeckYaw, VELOCITY);
             break;
         }
   }
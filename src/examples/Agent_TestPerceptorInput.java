@@ -5,7 +5,7 @@ import agentIO.EffectorOutput;
 import agentIO.PerceptorInput;
 import agentIO.ServerCommunication;
 import agentIO.perceptors.*;
-import java.util.LinkedList;
+import java.util.List;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 import util.FieldConsts;
 import util.Logger;
@@ -149,7 +149,7 @@ public class Agent_TestPerceptorInput {
       // Hear perceptor
       // Start the dummy agents to produce an input for this perceptor as 
       // mentioned in the comment on this class. 
-      LinkedList<HearPerceptor> hearList = percIn.getHears();
+      List<HearPerceptor> hearList = percIn.getHears();
       if ( hearList != null)
         for (HearPerceptor h : hearList) {
           log.log(h.toString());
@@ -170,11 +170,11 @@ public class Agent_TestPerceptorInput {
       Vector3D ball = percIn.getBall();
       //if (ball != null) 
         //log.log("Ball polar: " + Logger.polarStr(ball));     
-      LinkedList<LineVisionPerceptor> lines = percIn.getLines();
+      List<LineVisionPerceptor> lines = percIn.getLines();
 //      if (lines != null)
 //        for (LineVisionPerceptor l : lines)
 //          log.log(l.toString());
-      LinkedList<PlayerVisionPerceptor> players = percIn.getPlayerPositions();
+      List<PlayerVisionPerceptor> players = percIn.getPlayerPositions();
       if (players != null)
         for (PlayerVisionPerceptor p : players){
           log.log(p.toString());
@@ -25,8 +25,9 @@ import util.Logger;
  * keyframeMotion.KeyframeMotion and directMotion.LookAroundMotion .
  * KeyframeMotion is used for all moves except of the head actions, and
  * LookAroundMotion cares for the head. Both motion classes are used at the same
- * time, and the LookAroundMotion-instance overwrites the head commands, so
- * KeyframeMotion-moves of the head wont have any effect. 
+ * time, and the LookAroundMotion-instance sets the head commands in a layer 
+ * with a higher priority, so KeyframeMotion-moves of the head wont have any 
+ * effect. 
  * The cooperation of both motion classes is organized in the method act(). 
  * 
  * The program runs a time specified in the method run(), but it can also be 
@@ -164,9 +165,9 @@ public class Agent_SimpleSoccer {
     // of class KeyframeMotion has to be called in every server cycle. 
     kfMotion.executeKeyframeSequence();
     lookAround.look(); // No matter, which move the robot executes, it should
-                       // always turn its head around. So the LookAroundMotion
-                       // is called after the KeyframeMotion, to overwrite the 
-                       // commands for the head. 
+                       // always turn its head around. The LookAroundMotion 
+                       // sets the commands for the head in the head layer, 
+                       // so they win over those of the KeyframeMotion. 
     // Send agent message with effector commands to the server.
     effOut.sendAgentMessage();
   }
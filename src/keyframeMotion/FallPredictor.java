@@ -0,0 +1,199 @@
+package keyframeMotion;
+
+import agentIO.OrientationEstimator;
+import agentIO.PerceptorInput;
+import agentIO.PerceptorSnapshot;
+
+/**
+ * Predicts, whether and in which direction the robot is going to fall.
+ *
+ * The usual test for a fallen robot, an accelerometer z-value below 7, is
+ * true only when the robot already leans by about 45 degrees, so there is no
+ * time left to react. This class looks at the tilt of the torso (from
+ * PerceptorInput.getOrientation()) and at the rate, at which the tilt grows
+ * (from the gyrometer), and estimates the time until the tilt reaches the
+ * critical angle:
+ * - Below the support angle, the feet still hold the robot, and the tilt is
+ * extrapolated with its actual rate.
+ * - Beyond the support angle, the robot is an inverted pendulum, whose tilt
+ * grows exponentially: tilt(t) = A e^(kt) + B e^(-kt), with k = sqrt(g / l).
+ *
+ * The risk is 0 if the critical angle is not reached within the horizon, and
+ * grows to 1 as the time to fall approaches 0. KeyframeMotion uses it to start
+ * a protective fall motion, see KeyframeMotion.setFallProtection(...).
+ *
+ * Call update() once per server cycle, after PerceptorInput.update().
+ * Nothing is allocated.
+ */
+public class FallPredictor {
+
+  private static final double GRAVITY = 9.81;
+  /** Height of the center of mass of the robot in meters. */
+  private static final double PENDULUM_LENGTH = 0.3;
+  private static final double K = Math.sqrt(GRAVITY / PENDULUM_LENGTH);
+  /** The tilt rate is smoothed by this factor per cycle. */
+  private static final double RATE_SMOOTHING = 0.5;
+
+  private final PerceptorInput percIn;
+  private double supportAngle = Math.toRadians(15);
+  private double criticalAngle = Math.toRadians(45);
+  private double horizon = 0.5;
+
+  private double tilt;
+  private double tiltRate;
+  private double direction;
+  private double timeToFall = Double.POSITIVE_INFINITY;
+
+  /**
+   * Constructor.
+   *
+   * @param percIn Perceptor input of the agent, must be updated in every
+   * cycle before update() of this class.
+   */
+  public FallPredictor(PerceptorInput percIn) {
+    this.percIn = percIn;
+  }
+
+  /**
+   * Sets the angles of the prediction.
+   *
+   * @param supportAngle Tilt in radians, up to which the feet keep the robot
+   * from falling.
+   * @param criticalAngle Tilt in radians, at which the robot is considered
+   * fallen.
+   */
+  public void setAngles(double supportAngle, double criticalAngle) {
+    this.supportAngle = supportAngle;
+    this.criticalAngle = criticalAngle;
+  }
+
+  /**
+   * Sets the time, how far the prediction looks ahead.
+   *
+   * @param seconds Time to fall, at which the risk starts to grow above 0.
+   */
+  public void setHorizon(double seconds) {
+    horizon = seconds;
+  }
+
+  /**
+   * Updates the prediction with the perceptor values of the actual cycle.
+   */
+  public void update() {
+    OrientationEstimator orientation = percIn.getOrientation();
+    if (!orientation.isValid())
+      return;
+    double ux = orientation.getUp(PerceptorSnapshot.X);
+    double uy = orientation.getUp(PerceptorSnapshot.Y);
+    double uz = orientation.getUp(PerceptorSnapshot.Z);
+    double rateX = orientation.getRate(PerceptorSnapshot.X);
+    double rateY = orientation.getRate(PerceptorSnapshot.Y);
+
+    tilt = orientation.getTilt();
+    // leaning forward is 0, to the left PI/2, to the right -PI/2
+    direction = Math.atan2(ux, -uy);
+
+    // the vertical moves in the torso by -rate x up, so the tilt changes by
+    // (rateX uy - rateY ux) / sin(tilt)
+    double sinTilt = Math.sqrt(ux * ux + uy * uy);
+    double rate = sinTilt > 1e-3
+            ? (rateX * uy - rateY * ux) / sinTilt
+            : Math.sqrt(rateX * rateX + rateY * rateY);
+    tiltRate += (rate - tiltRate) * RATE_SMOOTHING;
+
+    timeToFall = predictTimeToFall(tilt, tiltRate);
+  }
+
+  /**
+   * Returns the estimated time, until the tilt reaches the critical angle.
+   *
+   * @return Time in seconds, 0 if the robot has already fallen, or
+   * Double.POSITIVE_INFINITY if the robot is not falling.
+   */
+  public double getTimeToFall() {
+    return timeToFall;
+  }
+
+  /**
+   * Returns the risk of a fall within the horizon.
+   *
+   * @return Value from 0 (no fall expected) to 1 (falling now).
+   */
+  public double getRisk() {
+    if (timeToFall >= horizon)
+      return 0;
+    return 1 - timeToFall / horizon;
+  }
+
+  /**
+   * Returns, whether the tilt has already reached the critical angle.
+   *
+   * @return True if the robot is considered fallen.
+   */
+  public boolean isFallen() {
+    return tilt >= criticalAngle;
+  }
+
+  /**
+   * Returns the direction of the tilt.
+   *
+   * @return Angle in radians from -PI to PI, 0 forward, PI/2 to the left,
+   * -PI/2 to the right.
+   */
+  public double getDirection() {
+    return direction;
+  }
+
+  /**
+   * Returns, whether the robot leans to its front rather than to its back.
+   *
+   * @return True if the direction is within 90 degrees of forward.
+   */
+  public boolean isFallingForward() {
+    return Math.abs(direction) < Math.PI / 2;
+  }
+
+  /**
+   * Returns the actual tilt.
+   *
+   * @return Angle between the torso and the vertical in radians.
+   */
+  public double getTilt() {
+    return tilt;
+  }
+
+  /**
+   * Returns the rate, at which the tilt grows.
+   *
+   * @return Smoothed rate in radians per second, negative while the robot
+   * rights itself.
+   */
+  public double getTiltRate() {
+    return tiltRate;
+  }
+
+  private double predictTimeToFall(double tilt, double rate) {
+    if (tilt >= criticalAngle)
+      return 0;
+    double time = 0;
+    if (tilt < supportAngle) {
+      if (rate <= 0)
+        return Double.POSITIVE_INFINITY;
+      time = (supportAngle - tilt) / rate;
+      if (time >= horizon)
+        return time;
+      tilt = supportAngle;
+    }
+    // inverted pendulum beyond the support angle, solved for
+    // A x^2 - target x + B = 0 with x = e^(kt)
+    double angle = tilt - supportAngle;
+    double target = criticalAngle - supportAngle;
+    double a = (angle + rate / K) / 2;
+    double b = (angle - rate / K) / 2;
+    if (a <= 0)
+      // falling back to the support
+      return Double.POSITIVE_INFINITY;
+    double x = (target + Math.sqrt(target * target - 4 * a * b)) / (2 * a);
+    return time + Math.log(x) / K;
+  }
+}
@@ -1,9 +1,12 @@
 package keyframeMotion;
 
 import agentIO.EffectorOutput;
+import agentIO.JointPredictor;
 import agentIO.PerceptorInput;
 import keyframeMotion.util.Keyframe;
+import keyframeMotion.util.KeyframeCursor;
 import keyframeMotion.util.KeyframeFileHandler;
+import keyframeMotion.util.KeyframeLibrary;
 import keyframeMotion.util.KeyframeSequence;
 import util.Logger;
 import util.RobotConsts;
@@ -41,19 +44,26 @@ import util.RobotConsts;
  * Integrating new motions to the implementation of this class:
  * 1) Save the new keyframe sequence in folder 
  * "[RoboNewbie project folder]/keyframes/" .
- * 2) Add a new class variable to KeyframeMotion just like WALK_FORWARD_SEQUENCE.
- * 3) Extend the constructor to load the new sequence into the new variable.
- * 4) Add a new set...() method just like setWalkForward(). (Not like setTest()!)
+ * 2) Add a new class constant to KeyframeMotion just like WALK_FORWARD_FILE,
+ * and add it to SEQUENCE_FILES.
+ * 3) Add a new set...() method just like setWalkForward(). (Not like setTest()!)
  * 
  * Using KeyframeMotion together with other motion implementations:
  * As mentioned above, method executeKeyframeSequence() has to be called in
  * every cycle. After this call, there are set commands for every joint
- * effector. Other motion classes can overwrite the commands with the
- * EffectorOutput instance of the agent.
+ * effector, in the base layer of EffectorOutput. Other motion classes can 
+ * override the commands by setting them in a layer with a higher priority, 
+ * e.g. EffectorOutput.HEAD_LAYER.
  * See also the comment on method executeKeyframeSequence() and on class
  * EffectorOutput. Example: In Agent_SimpleSoccer.java (especially method act())
  * in package examples.agentSimpleSoccer another motion class is used together
  * with KeyframeMotion.
+ * 
+ * Protection against falls: 
+ * With setFallProtection(...), KeyframeMotion checks in every cycle, whether 
+ * the robot is going to fall. If so, it aborts the current movement and lets 
+ * the robot fall in a controlled way to its front or back, so it can stand up
+ * again sooner. 
  */
 public class KeyframeMotion {
 
@@ -62,53 +72,73 @@ public class KeyframeMotion {
   }
   private static final double ANGLE_TOLLERANCE = 8f;
   
-  //time between two server messages in ms
-  private static final int TIME_STEMP_INTERVAL = 20; 
-  
   private final PerceptorInput percIn;
   private final EffectorOutput effOut;
   private final Logger log;
   boolean loggingOn;
-  private static KeyframeSequence WALK_FORWARD_SEQUENCE;
-  private static KeyframeSequence FALL_BACK_SEQUENCE;
-  private static KeyframeSequence FALL_FORWARD_SEQUENCE;
-  private static KeyframeSequence STAND_UP_FROM_BACK_SEQUENCE;
-  private static KeyframeSequence ROLL_OVER_TO_BACK_SEQUENCE;
-  private static KeyframeSequence STOP_WALKING_SEQUENCE;
-  private static KeyframeSequence TURN_RIGHT_SEQUENCE;
-  private static KeyframeSequence TURN_LEFT_SEQUENCE;
-  private static KeyframeSequence TURN_RIGHT_SMALL_SEQUENCE;
-  private static KeyframeSequence TURN_LEFT_SMALL_SEQUENCE;
-  private static KeyframeSequence SIDE_STEP_RIGHT_SEQUENCE;
-  private static KeyframeSequence SIDE_STEP_LEFT_SEQUENCE;
-  private static KeyframeSequence TURN_HEAD_LEFT_SEQUENCE;
-  private static KeyframeSequence TURN_HEAD_RIGHT_SEQUENCE;
-  private static KeyframeSequence TURN_HEAD_DOWN_SEQUENCE;
-  private static KeyframeSequence WAVE_SEQUENCE;
+  private static final String WALK_FORWARD_FILE = "walk_forward-flemming-nika.txt";
+  private static final String FALL_BACK_FILE = "nika_fall_back.txt";
+  private static final String FALL_FORWARD_FILE = "fall_forward.txt";
+  private static final String STAND_UP_FROM_BACK_FILE = "stand_up_from_back.txt";
+  private static final String ROLL_OVER_TO_BACK_FILE = "roll_over_to_back.txt";
+  private static final String STOP_WALKING_FILE = "nika_stop_walking.txt";
+  private static final String TURN_RIGHT_FILE = "turn-right.txt";
+  private static final String TURN_LEFT_FILE = "turn-left.txt";
+  private static final String TURN_RIGHT_SMALL_FILE = "turn-right-small-nika.txt";
+  private static final String TURN_LEFT_SMALL_FILE = "turn-left-small-nika.txt";
+  private static final String SIDE_STEP_RIGHT_FILE = "side-step-right-nika.txt";
+  private static final String SIDE_STEP_LEFT_FILE = "side-step-left-nika.txt";
+  private static final String TURN_HEAD_LEFT_FILE = "turn-head-left.txt";
+  private static final String TURN_HEAD_RIGHT_FILE = "turn-head-right.txt";
+  private static final String TURN_HEAD_DOWN_FILE = "turn-head-down.txt";
+  private static final String WAVE_FILE = "wave_nika.txt";
   
-  private static KeyframeSequence WALK_FORWARD_BEGIN_SEQUENCE;
-  private static KeyframeSequence WALK_FORWARD_LEFT_SEQUENCE;
-  private static KeyframeSequence WALK_FORWARD_LEFT_END_SEQUENCE;
-  private static KeyframeSequence WALK_FORWARD_RIGHT_SEQUENCE;
-  private static KeyframeSequence WALK_FORWARD_RIGHT_END_SEQUENCE;
-  private static KeyframeSequence KICK_THE_BALL_SEQUENCE;
-  private static KeyframeSequence SIDE_STEP_LEFT_KIKA_SEQUENCE;
-  private static KeyframeSequence SIDE_STEP_RIGHT_KIKA_SEQUENCE;
+  private static final String WALK_FORWARD_BEGIN_FILE = "walk_forward-begin.txt";
+  private static final String WALK_FORWARD_LEFT_FILE = "walk_forward-left.txt";
+  private static final String WALK_FORWARD_LEFT_END_FILE = "walk_forward-left-end.txt";
+  private static final String WALK_FORWARD_RIGHT_FILE = "walk_forward-right.txt";
+  private static final String WALK_FORWARD_RIGHT_END_FILE = "walk_forward-right-end.txt";
+  private static final String KICK_THE_BALL_FILE = "kick_the_ball.txt";
+  private static final String SIDE_STEP_LEFT_KIKA_FILE = "side-step-left-kika.txt";
+  private static final String SIDE_STEP_RIGHT_KIKA_FILE = "side-step-right-kika.txt";
+  // all files above, they are loaded in the background
+  private static final String[] SEQUENCE_FILES = {
+    WALK_FORWARD_FILE, FALL_BACK_FILE,
+    FALL_FORWARD_FILE, STAND_UP_FROM_BACK_FILE,
+    ROLL_OVER_TO_BACK_FILE, STOP_WALKING_FILE,
+    TURN_RIGHT_FILE, TURN_LEFT_FILE,
+    TURN_RIGHT_SMALL_FILE, TURN_LEFT_SMALL_FILE,
+    SIDE_STEP_RIGHT_FILE, SIDE_STEP_LEFT_FILE,
+    TURN_HEAD_LEFT_FILE, TURN_HEAD_RIGHT_FILE,
+    TURN_HEAD_DOWN_FILE, WAVE_FILE,
+    WALK_FORWARD_BEGIN_FILE, WALK_FORWARD_LEFT_FILE,
+    WALK_FORWARD_LEFT_END_FILE, WALK_FORWARD_RIGHT_FILE,
+    WALK_FORWARD_RIGHT_END_FILE, KICK_THE_BALL_FILE,
+    SIDE_STEP_LEFT_KIKA_FILE, SIDE_STEP_RIGHT_KIKA_FILE
+  };
   
  
   private Keyframe actualKeyframe = null;           // Mit diesen drei Variablen
   private int leftCyclesForActualFrame = 0;         // könnte man state
   private KeyframeSequence actualSequence = null;   // ersetzen, aber so ist der Code verständlicher. 
+  // reads the frames of actualSequence, the sequences are shared by all agents
+  private final KeyframeCursor cursor = new KeyframeCursor();
   private MotionState state = MotionState.READY_TO_MOVE;
   
-  private double[] lastCycleAngles = new double[RobotConsts.JointsCount];
+  private final JointPredictor jointPredictor;
+  
+  private FallPredictor fallPredictor;
+  private double fallRiskLevel;
 
   /**
-   * Constructor, initialize dependencies and load movements. 
+   * Constructor, initialize dependencies. 
    * 
    * Sets the required dependencies for logging and sending 
-   * effector commands to the server and loads all movements from the keyframe 
-   * sequence files. 
+   * effector commands to the server. The movements are loaded from the 
+   * keyframe sequence files only once per JVM, by KeyframeLibrary, and shared
+   * by all agents. The loading starts in the background, when the first 
+   * KeyframeMotion is created, so it runs while the agent connects to the 
+   * server. A set...() method waits only, if its movement is not loaded yet. 
    * 
    * @param effOut Has to be already initialized, cannot be null. 
    * @param percIn Has to be already initialized, cannot be null. 
@@ -121,36 +151,8 @@ public class KeyframeMotion {
     this.percIn = percIn;
     log = logger;
     loggingOn = false;
-    for (int i = 0; i < lastCycleAngles.length; i++) 
-      lastCycleAngles[i] = 0;
-
-    KeyframeFileHandler keyframeReader = new KeyframeFileHandler();
-
-    WALK_FORWARD_SEQUENCE = keyframeReader.getSequenceFromFile("walk_forward-flemming-nika.txt");
-    FALL_BACK_SEQUENCE = keyframeReader.getSequenceFromFile("nika_fall_back.txt");
-    FALL_FORWARD_SEQUENCE = keyframeReader.getSequenceFromFile("fall_forward.txt");
-    STAND_UP_FROM_BACK_SEQUENCE = keyframeReader.getSequenceFromFile("stand_up_from_back.txt");
-    ROLL_OVER_TO_BACK_SEQUENCE = keyframeReader.getSequenceFromFile("roll_over_to_back.txt");
-    STOP_WALKING_SEQUENCE = keyframeReader.getSequenceFromFile("nika_stop_walking.txt");
-    TURN_RIGHT_SEQUENCE = keyframeReader.getSequenceFromFile("turn-right.txt");
-    TURN_LEFT_SEQUENCE = keyframeReader.getSequenceFromFile("turn-left.txt");
-    TURN_RIGHT_SMALL_SEQUENCE = keyframeReader.getSequenceFromFile("turn-right-small-nika.txt");
-    TURN_LEFT_SMALL_SEQUENCE = keyframeReader.getSequenceFromFile("turn-left-small-nika.txt");
-    SIDE_STEP_RIGHT_SEQUENCE = keyframeReader.getSequenceFromFile("side-step-right-nika.txt");
-    SIDE_STEP_LEFT_SEQUENCE = keyframeReader.getSequenceFromFile("side-step-left-nika.txt");
-    TURN_HEAD_LEFT_SEQUENCE = keyframeReader.getSequenceFromFile("turn-head-left.txt");
-    TURN_HEAD_RIGHT_SEQUENCE = keyframeReader.getSequenceFromFile("turn-head-right.txt");
-    TURN_HEAD_DOWN_SEQUENCE = keyframeReader.getSequenceFromFile("turn-head-down.txt");
-    WAVE_SEQUENCE = keyframeReader.getSequenceFromFile("wave_nika.txt");
-    
-    WALK_FORWARD_BEGIN_SEQUENCE = keyframeReader.getSequenceFromFile("walk_forward-begin.txt");
-    WALK_FORWARD_LEFT_SEQUENCE = keyframeReader.getSequenceFromFile("walk_forward-left.txt");
-    WALK_FORWARD_LEFT_END_SEQUENCE = keyframeReader.getSequenceFromFile("walk_forward-left-end.txt");
-    WALK_FORWARD_RIGHT_SEQUENCE = keyframeReader.getSequenceFromFile("walk_forward-right.txt");
-    WALK_FORWARD_RIGHT_END_SEQUENCE = keyframeReader.getSequenceFromFile("walk_forward-right-end.txt");
-    KICK_THE_BALL_SEQUENCE = keyframeReader.getSequenceFromFile("kick_the_ball.txt");
-    SIDE_STEP_LEFT_KIKA_SEQUENCE = keyframeReader.getSequenceFromFile("side-step-left-kika.txt");
-    SIDE_STEP_RIGHT_KIKA_SEQUENCE = keyframeReader.getSequenceFromFile("side-step-right-kika.txt");
+    jointPredictor = new JointPredictor(percIn, effOut);
+    KeyframeLibrary.preload(SEQUENCE_FILES);
   }
 
   protected String currentPosture_ = "standing";
@@ -180,7 +182,7 @@ public class KeyframeMotion {
    */
   public void setTurnHeadDown() {
     if (loggingOn) log.log("motion turn head down \n");
-    actualSequence = TURN_HEAD_DOWN_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(TURN_HEAD_DOWN_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
 
@@ -191,7 +193,7 @@ public class KeyframeMotion {
    */
   public void setTurnHeadLeft() {
     if (loggingOn) log.log("motion turn head left \n");
-    actualSequence = TURN_HEAD_LEFT_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(TURN_HEAD_LEFT_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
   
@@ -202,7 +204,7 @@ public class KeyframeMotion {
    */
   public void setTurnHeadRight() {
     if (loggingOn) log.log("motion turn head right \n");
-    actualSequence = TURN_HEAD_RIGHT_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(TURN_HEAD_RIGHT_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
   
@@ -218,7 +220,7 @@ public class KeyframeMotion {
       setStopWalking();
       return;
     }
-    actualSequence = TURN_RIGHT_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(TURN_RIGHT_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
 
@@ -234,7 +236,7 @@ public class KeyframeMotion {
       setStopWalking();
       return;
     }
-    actualSequence = TURN_LEFT_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(TURN_LEFT_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
   
@@ -249,7 +251,7 @@ public class KeyframeMotion {
       setStopWalking();
       return;
     }
-    actualSequence = TURN_RIGHT_SMALL_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(TURN_RIGHT_SMALL_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
 
@@ -265,7 +267,7 @@ public class KeyframeMotion {
       setStopWalking();
       return;
     }
-    actualSequence = TURN_LEFT_SMALL_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(TURN_LEFT_SMALL_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
   
@@ -280,7 +282,7 @@ public class KeyframeMotion {
       setStopWalking();
       return;
     }
-    actualSequence = SIDE_STEP_RIGHT_KIKA_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(SIDE_STEP_RIGHT_KIKA_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
 
@@ -296,7 +298,7 @@ public class KeyframeMotion {
       setStopWalking();
       return;
     }
-    actualSequence = SIDE_STEP_LEFT_KIKA_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(SIDE_STEP_LEFT_KIKA_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
 
@@ -311,14 +313,14 @@ public class KeyframeMotion {
   public void setWalkForward() {
     if (loggingOn) log.log("motion walk forward \n");
     if (currentPosture() == "standing") {
-      actualSequence = WALK_FORWARD_BEGIN_SEQUENCE;
+      actualSequence = KeyframeLibrary.get(WALK_FORWARD_BEGIN_FILE);
       currentPosture_ = "walking-begin";
     } else if (currentPosture() == "walking-begin"
         || currentPosture() == "walking-left-leg") {
-      actualSequence = WALK_FORWARD_LEFT_SEQUENCE;
+      actualSequence = KeyframeLibrary.get(WALK_FORWARD_LEFT_FILE);
       currentPosture_ = "walking-right-leg";      
     } else if (currentPosture() == "walking-right-leg") {
-      actualSequence = WALK_FORWARD_RIGHT_SEQUENCE;
+      actualSequence = KeyframeLibrary.get(WALK_FORWARD_RIGHT_FILE);
       currentPosture_ = "walking-left-leg";      
     } else {
       assert(false);
@@ -343,10 +345,10 @@ public class KeyframeMotion {
   public void setStopWalking() {  
     if (loggingOn) log.log("motion stop walking \n");
     if (currentPosture() == "walking-left-leg") {
-      actualSequence = WALK_FORWARD_LEFT_END_SEQUENCE;
+      actualSequence = KeyframeLibrary.get(WALK_FORWARD_LEFT_END_FILE);
       currentPosture_ = "standing";      
     } else if (currentPosture() == "walking-right-leg") {
-      actualSequence = WALK_FORWARD_RIGHT_END_SEQUENCE;
+      actualSequence = KeyframeLibrary.get(WALK_FORWARD_RIGHT_END_FILE);
       currentPosture_ = "standing";      
     } else {
       assert(false);
@@ -361,7 +363,7 @@ public class KeyframeMotion {
    */
   public void setFallBack() {
     if (loggingOn) log.log("motion fall back \n");
-    actualSequence = FALL_BACK_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(FALL_BACK_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
   
@@ -372,7 +374,7 @@ public class KeyframeMotion {
    */
   public void setFallForward() {
     if (loggingOn) log.log("motion fall forward \n");
-    actualSequence = FALL_FORWARD_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(FALL_FORWARD_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
   
@@ -393,7 +395,7 @@ public class KeyframeMotion {
    */
   public void setStandUpFromBack() {
     if (loggingOn) log.log("motion stand up from back \n");
-    actualSequence = STAND_UP_FROM_BACK_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(STAND_UP_FROM_BACK_FILE);
     currentPosture_ = "standing";
     state = MotionState.BETWEEN_FRAMES;
   }
@@ -406,7 +408,7 @@ public class KeyframeMotion {
    */
    public void setRollOverToBack() {
     if (loggingOn) log.log("motion roll over from back \n");
-    actualSequence = ROLL_OVER_TO_BACK_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(ROLL_OVER_TO_BACK_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
    
@@ -417,7 +419,7 @@ public class KeyframeMotion {
    */
    public void setWave() {
     if (loggingOn) log.log("motion wave \n");
-    actualSequence = WAVE_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(WAVE_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
 
@@ -427,7 +429,7 @@ public class KeyframeMotion {
       setStopWalking();
       return;
     }
-    actualSequence = KICK_THE_BALL_SEQUENCE;
+    actualSequence = KeyframeLibrary.get(KICK_THE_BALL_FILE);
     state = MotionState.BETWEEN_FRAMES;
   }
 
@@ -456,6 +458,26 @@ public class KeyframeMotion {
     state = MotionState.BETWEEN_FRAMES;
   }
 
+  /**
+   * Turns the protection against falls on or off.
+   * 
+   * When it is turned on, executeKeyframeSequence() updates the fall 
+   * predictor in every cycle. If the predicted risk of a fall reaches the 
+   * given level, while the robot is not lying yet, the current movement is 
+   * aborted and the robot falls on purpose with the movement of setFallForward()
+   * or setFallBack(), depending on the direction it is falling to. The stand 
+   * up movements are never aborted. 
+   * 
+   * @param predictor The fall predictor for the robot of this agent, or null 
+   * to turn the protection off.
+   * @param riskLevel Risk from 0 to 1 (see FallPredictor.getRisk()), at which 
+   * the protection starts, e.g. 0.5.
+   */
+  public void setFallProtection(FallPredictor predictor, double riskLevel) {
+    fallPredictor = predictor;
+    fallRiskLevel = riskLevel;
+  }
+
   /**
    * States, whether the robot is ready to start a new movement or is currently 
    * busy with a movement.
@@ -491,6 +513,10 @@ public class KeyframeMotion {
    * If there is not set any movement, there are not set any commands. 
    */
   public void executeKeyframeSequence() {
+    jointPredictor.update();
+    if (fallPredictor != null)
+      protectFromFall();
+    
     switch (state) {
       case READY_TO_MOVE:
         break;
@@ -503,6 +529,36 @@ public class KeyframeMotion {
     }
   }
 
+  /**
+   * Internal method for starting a protective fall, if the robot is going to 
+   * fall.
+   */
+  private void protectFromFall() {
+    fallPredictor.update();
+    if (fallPredictor.isFallen() || fallPredictor.getRisk() < fallRiskLevel)
+      return;
+    if (isActualSequence(FALL_FORWARD_FILE) || isActualSequence(FALL_BACK_FILE)
+            || isActualSequence(STAND_UP_FROM_BACK_FILE) 
+            || isActualSequence(ROLL_OVER_TO_BACK_FILE))
+      return;
+    if (loggingOn) log.log("fall predicted in " + fallPredictor.getTimeToFall() + " s\n");
+    // start the aborted sequence from the beginning next time
+    cursor.start(null);
+    if (fallPredictor.isFallingForward())
+      setFallForward();
+    else
+      setFallBack();
+    // the robot is not walking any more
+    currentPosture_ = "standing";
+  }
+
+  /**
+   * Internal method for checking, which sequence is executed.
+   */
+  private boolean isActualSequence(String fileName) {
+    return actualSequence != null && actualSequence == KeyframeLibrary.get(fileName);
+  }
+
   /**
    * Internal method for choosing the actual keyframe from the actual sequence.
    * 
@@ -522,17 +578,21 @@ public class KeyframeMotion {
 
     if (actualSequence == null)
       actualKeyframe = null;
-    else
-      actualKeyframe = actualSequence.getNextFrame();
+    else {
+      if (cursor.getSequence() != actualSequence)
+        // a new sequence has been set
+        cursor.start(actualSequence);
+      actualKeyframe = cursor.next();
+    }
     
     if (actualKeyframe == null) {
       actualSequence = null;
+      cursor.start(null);
       state = MotionState.READY_TO_MOVE;
       //log.log("ende der seq");
     } else {
-      for (int i = 0; i < lastCycleAngles.length; i++) 
-        lastCycleAngles[i] = 0;
-      leftCyclesForActualFrame = actualKeyframe.getTransitionTime() / TIME_STEMP_INTERVAL;
+      // time between two server messages in ms, usually 20
+      leftCyclesForActualFrame = actualKeyframe.getTransitionTime() / percIn.getClock().getCycleMillis();
       
       state = MotionState.IN_FRAME;
       executeActualKeyframe();
@@ -620,21 +680,18 @@ public class KeyframeMotion {
     double speed = 0f;
 
     double targetAngle = actualKeyframe.getAngle(angleIndex);
-    double sensedAngle = Math.toDegrees(percIn.getJoint(angleIndex));
+    double predictedAngle = Math.toDegrees(jointPredictor.getAngle(angleIndex));
+            // The predicted angle is important, because the server sends joint
+            // perceptor values (like all perceptor values) delayed by one 
+            // simulation step.
     
     if (leftCyclesForActualFrame > 1) {
-      double angleDifference = 
-              targetAngle - (sensedAngle + lastCycleAngles[angleIndex]);
-              // Considering lastCycleAngles is important, because the 
-              // server sends joint perceptor values (like all perceptor values)
-              // delayed by one simulation step.
+      double angleDifference = targetAngle - predictedAngle;
       double thisCycleAngle = 
               (angleDifference ) / (double)(leftCyclesForActualFrame - 1);
               // cycles - 1, because the last command is always 0
-      speed =  (Math.toRadians(thisCycleAngle) / (double) TIME_STEMP_INTERVAL) * (double)1000;
-              // multiplication by 1000, because speed has to be per sec, 
-              // not per ms.
-      lastCycleAngles[angleIndex] = thisCycleAngle;
+      speed =  (Math.toRadians(thisCycleAngle) / percIn.getClock().getCycleLength());
+              // speed has to be per sec
     }
 
     return speed;
@@ -10,7 +10,8 @@ public class Keyframe {
   
   public Keyframe(int tTime, double[] angleArray){
     transitionTime = tTime;
-    angles = angleArray;
+    // copied, so the frame cannot be changed from outside
+    angles = angleArray.clone();
   }
   
   public int getTransitionTime(){
@@ -0,0 +1,167 @@
+package keyframeMotion.util;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import util.RobotConsts;
+
+/**
+ * Binary file with several keyframe sequences.
+ *
+ * Reading the binary archive needs no text parsing: the file is mapped into
+ * memory, its checksum is checked, and the numbers are read directly. The
+ * archive is created from the text files by KeyframeArchiveConverter, the
+ * build does it automatically for the folder "keyframes" of the project (file
+ * DEFAULT_FILE_NAME in the same folder). KeyframeLibrary reads the sequences
+ * from it, if it exists.
+ *
+ * Format, all numbers big-endian:
+ * - header: magic number MAGIC, VERSION, number of joints per frame, number
+ * of sequences, length of the data in bytes and CRC32 checksum of the data,
+ * each as int
+ * - data, for each sequence: length of the name in bytes (short), the name
+ * in UTF-8 (the name of the text file, e.g. "wave_nika.txt"), the number of
+ * frames (int) and the frames, each with the transition time in ms (int) and
+ * the angles of all joints in degrees (double) in the order of RobotConsts
+ */
+public final class KeyframeArchive {
+
+  /** Name of the archive in the folder of the keyframe files. */
+  public static final String DEFAULT_FILE_NAME = "keyframes.bin";
+  /** First 4 bytes of an archive, "RNKF". */
+  public static final int MAGIC = 0x524E4B46;
+  /** Version of the format. */
+  public static final int VERSION = 1;
+
+  private static final int HEADER_LENGTH = 6 * 4;
+
+  private KeyframeArchive() {
+  }
+
+  /**
+   * Reads all sequences of an archive.
+   *
+   * @param file The archive.
+   * @return Immutable sequences by their names, in the order of the archive.
+   * @throws IOException If the file cannot be read, or is not a valid archive.
+   */
+  public static Map<String, KeyframeSequence> read(File file) throws IOException {
+    MappedByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    try {
+      return read(buffer);
+    } catch (RuntimeException e) {
+      // e.g. BufferUnderflowException of a truncated file
+      throw new IOException("Invalid keyframe archive " + file + ": " + e, e);
+    }
+  }
+
+  private static Map<String, KeyframeSequence> read(ByteBuffer buffer) throws IOException {
+    if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC)
+      throw new IOException("No keyframe archive");
+    int version = buffer.getInt();
+    if (version != VERSION)
+      throw new IOException("Unsupported version " + version);
+    int jointsCount = buffer.getInt();
+    if (jointsCount != RobotConsts.JointsCount)
+      throw new IOException("Archive for " + jointsCount + " joints");
+    int sequenceCount = buffer.getInt();
+    int dataLength = buffer.getInt();
+    int checksum = buffer.getInt();
+    if (dataLength != buffer.remaining() || checksum != checksum(buffer))
+      throw new IOException("Damaged keyframe archive");
+
+    Map<String, KeyframeSequence> sequences = new LinkedHashMap<>();
+    for (int s = 0; s < sequenceCount; s++) {
+      byte[] name = new byte[buffer.getShort() & 0xFFFF];
+      buffer.get(name);
+      KeyframeSequence ks = new KeyframeSequence();
+      int frameCount = buffer.getInt();
+      for (int f = 0; f < frameCount; f++) {
+        int transitionTime = buffer.getInt();
+        double[] angles = new double[jointsCount];
+        for (int i = 0; i < jointsCount; i++)
+          angles[i] = buffer.getDouble();
+        ks.addFrame(new Keyframe(transitionTime, angles));
+      }
+      sequences.put(new String(name, StandardCharsets.UTF_8), ks.toImmutable());
+    }
+    return sequences;
+  }
+
+  /**
+   * Writes sequences to an archive.
+   *
+   * @param sequences Sequences by their names.
+   * @param file The archive, it is overwritten.
+   * @throws IOException If the file cannot be written.
+   */
+  public static void write(Map<String, KeyframeSequence> sequences, File file) throws IOException {
+    List<byte[]> names = new ArrayList<>();
+    int dataLength = 0;
+    for (Map.Entry<String, KeyframeSequence> entry : sequences.entrySet()) {
+      byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+      names.add(name);
+      dataLength += 2 + name.length + 4
+              + entry.getValue().getFrameCount() * (4 + 8 * RobotConsts.JointsCount);
+    }
+
+    ByteBuffer data = ByteBuffer.allocate(dataLength);
+    int s = 0;
+    for (KeyframeSequence ks : sequences.values()) {
+      byte[] name = names.get(s++);
+      data.putShort((short) name.length);
+      data.put(name);
+      data.putInt(ks.getFrameCount());
+      for (int f = 0; f < ks.getFrameCount(); f++) {
+        Keyframe frame = ks.getFrame(f);
+        data.putInt(frame.getTransitionTime());
+        for (int i = 0; i < RobotConsts.JointsCount; i++)
+          data.putDouble(frame.getAngle(i));
+      }
+    }
+    data.flip();
+
+    try (OutputStream stream = new FileOutputStream(file)) {
+      DataOutputStream out = new DataOutputStream(stream);
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(RobotConsts.JointsCount);
+      out.writeInt(sequences.size());
+      out.writeInt(dataLength);
+      out.writeInt(checksum(data));
+      out.write(data.array(), 0, dataLength);
+      out.flush();
+    }
+  }
+
+  /**
+   * Computes the CRC32 checksum of the remaining bytes of a buffer, without
+   * changing its position.
+   */
+  private static int checksum(ByteBuffer buffer) {
+    CRC32 crc = new CRC32();
+    ByteBuffer data = buffer.duplicate();
+    byte[] chunk = new byte[4096];
+    while (data.hasRemaining()) {
+      int length = Math.min(chunk.length, data.remaining());
+      data.get(chunk, 0, length);
+      crc.update(chunk, 0, length);
+    }
+    return (int) crc.getValue();
+  }
+}
@@ -0,0 +1,60 @@
+package keyframeMotion.util;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This little program converts all keyframe text files of a folder into one
+ * KeyframeArchive.
+ *
+ * Usage: java keyframeMotion.util.KeyframeArchiveConverter [folder [archive]]
+ * Default folder is KeyframeFileHandler.DEFAULT_FOLDER, default archive is
+ * the file KeyframeArchive.DEFAULT_FILE_NAME in the folder. So without
+ * arguments, it should be started in the root directory of the RoboNewbie
+ * project. The build runs it automatically, when a keyframe file has changed.
+ */
+public class KeyframeArchiveConverter {
+
+  /**
+   * Starts the conversion, see class description for details.
+   *
+   * @param args Folder of the text files and the archive file.
+   * @throws IOException If the archive cannot be written.
+   */
+  public static void main(String[] args) throws IOException {
+    File folder = new File(args.length > 0 ? args[0] : KeyframeFileHandler.DEFAULT_FOLDER);
+    File archive = args.length > 1 ? new File(args[1])
+            : new File(folder, KeyframeArchive.DEFAULT_FILE_NAME);
+    Map<String, KeyframeSequence> sequences = convert(folder);
+    KeyframeArchive.write(sequences, archive);
+    System.out.println(sequences.size() + " keyframe sequences written to " + archive);
+  }
+
+  /**
+   * Reads all text files of a folder.
+   *
+   * @param folder The folder.
+   * @return The sequences by their file names, sorted by the names.
+   * @throws IOException If the folder cannot be read.
+   */
+  public static Map<String, KeyframeSequence> convert(File folder) throws IOException {
+    String[] fileNames = folder.list(new FilenameFilter() {
+      @Override
+      public boolean accept(File dir, String name) {
+        return name.endsWith(".txt");
+      }
+    });
+    if (fileNames == null)
+      throw new IOException("Cannot read folder " + folder);
+    Arrays.sort(fileNames);
+    Map<String, KeyframeSequence> sequences = new LinkedHashMap<>();
+    for (String fileName : fileNames)
+      sequences.put(fileName,
+              KeyframeFileHandler.getSequenceFromFile(new File(folder, fileName)));
+    return sequences;
+  }
+}
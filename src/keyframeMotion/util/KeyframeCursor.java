@@ -0,0 +1,61 @@
+package keyframeMotion.util;
+
+/**
+ * Reads the frames of a keyframe sequence one after the other.
+ *
+ * The cursor holds the playback state of one agent, so several agents can
+ * play the same immutable sequence (e.g. from KeyframeLibrary) at the same
+ * time. A cursor itself is not thread-safe, each agent needs its own one.
+ */
+public class KeyframeCursor {
+
+  private KeyframeSequence sequence;
+  private int nextFrameNumber;
+
+  /**
+   * Starts reading a sequence from its first frame.
+   *
+   * @param sequence The sequence, or null to stop reading.
+   */
+  public void start(KeyframeSequence sequence) {
+    this.sequence = sequence;
+    nextFrameNumber = 0;
+  }
+
+  /**
+   * Returns the next frame, which has not been returned yet.
+   *
+   * @return The next frame, or null after the last frame, or if no sequence
+   * is started. After null, the sequence has to be started again.
+   */
+  public Keyframe next() {
+    if (sequence == null || nextFrameNumber == sequence.getFrameCount())
+      return null;
+    return sequence.getFrame(nextFrameNumber++);
+  }
+
+  /**
+   * Goes back to the first frame of the sequence.
+   */
+  public void reset() {
+    nextFrameNumber = 0;
+  }
+
+  /**
+   * Returns the sequence, which is read.
+   *
+   * @return The started sequence, or null.
+   */
+  public KeyframeSequence getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Returns the number of the next frame.
+   *
+   * @return Index of the frame, which is returned by the next call of next().
+   */
+  public int getNextFrameNumber() {
+    return nextFrameNumber;
+  }
+}
@@ -2,6 +2,7 @@
 package keyframeMotion.util;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import util.RobotConsts;
@@ -9,10 +10,46 @@ import util.RobotConsts;
 /*
  * Liest Keyframe-Dateien aus dem Verzeichnis "[Root]/keyframes", wobei [Root]
  * das Ausführungsverzeichnis des Programms ist.
+ * The folder can be changed with setFolder(...).
  * @author nika
  */
 public class KeyframeFileHandler {
   
+  /** Default folder of the keyframe files, relative to the working directory. */
+  public static final String DEFAULT_FOLDER = "keyframes";
+  
+  private static volatile File folder = new File(DEFAULT_FOLDER);
+  
+  /**
+   * Sets the folder, from which the keyframe files are read and to which they
+   * are written. Call it before the first KeyframeMotion is created, because 
+   * KeyframeLibrary reads each file only once.
+   * 
+   * @param folderName Path of the folder.
+   */
+  public static void setFolder(String folderName) {
+    folder = new File(folderName);
+  }
+  
+  /**
+   * Returns the folder of the keyframe files.
+   * 
+   * @return Folder, DEFAULT_FOLDER if it has not been set.
+   */
+  public static File getFolder() {
+    return folder;
+  }
+  
+  /**
+   * Returns a keyframe file.
+   * 
+   * @param fileName Name of the file in the folder of the keyframe files.
+   * @return The file, which need not exist.
+   */
+  public static File getFile(String fileName) {
+    return new File(folder, fileName);
+  }
+  
   /*! \brief Liest die Keyframe-Datei zeilenweise in ein KeyframeSequence-Objekt.
    * 
    * Leerzeilen und Kommentarzeilen (fangen mit "//" an) in der Keyframe-Datei
@@ -23,11 +60,16 @@ public class KeyframeFileHandler {
    * 
    */
   public static KeyframeSequence getSequenceFromFile(String fileName) {
+    return getSequenceFromFile(getFile(fileName));
+  }
+  
+  /** Reads a keyframe file from any folder, like getSequenceFromFile(String). 
+   */
+  public static KeyframeSequence getSequenceFromFile(File file) {
     
     KeyframeSequence ks = new KeyframeSequence();
     
-	try {
-		BufferedReader in = new BufferedReader(new FileReader("keyframes/" + fileName));
+	try (BufferedReader in = new BufferedReader(new FileReader(file))) {
 		String line = null;
 		while ((line = in.readLine()) != null) {
           if (line.length() > 0 && !line.startsWith("//")){
@@ -73,17 +115,16 @@ public class KeyframeFileHandler {
    */
   public static void writeSequenceToFile(KeyframeSequence ks, String fileName){
     try{
-      FileWriter writer = new FileWriter("keyframes/" + fileName);
-      Keyframe kf = ks.getNextFrame();
-      while(kf != null)
+      FileWriter writer = new FileWriter(getFile(fileName));
+      for (int f = 0; f < ks.getFrameCount(); f++)
       {
+        Keyframe kf = ks.getFrame(f);
         StringBuilder sb = new StringBuilder();
         sb.append(kf.getTransitionTime());
         for (int i = 0; i < RobotConsts.JointsCount; i++)
           sb.append(" ").append(kf.getAngle(i));
         sb.append("\n");
         writer.write(sb.toString());
-        kf = ks.getNextFrame();
       }
       writer.close();
     }
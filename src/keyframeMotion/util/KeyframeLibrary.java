@@ -0,0 +1,164 @@
+package keyframeMotion.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keyframe sequences, which are shared by all agents in the JVM.
+ *
+ * Each keyframe file is read only once per JVM, the first time its sequence
+ * is requested, and kept as an immutable KeyframeSequence. So e.g. eleven
+ * agents started in one JVM share one copy of all motions. The sequences are
+ * read with a KeyframeCursor per agent.
+ *
+ * With preload(...), the files are read in the background by a pool of
+ * threads, e.g. while the agent connects to the server. get(...) waits only,
+ * if the requested file is being read at the moment; if it is still waiting
+ * in the queue of the pool, get(...) reads it itself.
+ *
+ * If the folder of the keyframe files contains a KeyframeArchive (file
+ * KeyframeArchive.DEFAULT_FILE_NAME, created by the build), the sequences are
+ * taken from it, so no text has to be parsed. A text file, which is newer than
+ * the archive or not contained in it, is read as text.
+ *
+ * The class is thread-safe. Files, which are edited at runtime (like test.txt
+ * of Agent_KeyframeDeveloper), have to be read with
+ * KeyframeFileHandler.getSequenceFromFile(...) instead.
+ */
+public final class KeyframeLibrary {
+
+  private static final ConcurrentHashMap<String, FutureTask<KeyframeSequence>> SEQUENCES =
+          new ConcurrentHashMap<>();
+  // sequences of the archive, read with the first requested sequence
+  private static Map<String, KeyframeSequence> archive;
+  private static long archiveTime;
+
+  private KeyframeLibrary() {
+  }
+
+  /**
+   * Starts reading files in the background, and returns immediately.
+   *
+   * Files, which are already read or requested, are skipped.
+   *
+   * @param fileNames Names of the files in the folder "keyframes" of the
+   * project.
+   */
+  public static void preload(String... fileNames) {
+    for (String fileName : fileNames) {
+      FutureTask<KeyframeSequence> task = newTask(fileName);
+      if (SEQUENCES.putIfAbsent(fileName, task) == null)
+        Loader.POOL.execute(task);
+    }
+  }
+
+  /**
+   * Returns the sequence of a keyframe file, and reads the file, if it is
+   * requested for the first time.
+   *
+   * @param fileName Name of the file in the folder "keyframes" of the project.
+   * @return Immutable sequence, the same object for all calls with the same
+   * file name.
+   */
+  public static KeyframeSequence get(String fileName) {
+    FutureTask<KeyframeSequence> task = SEQUENCES.get(fileName);
+    if (task == null) {
+      FutureTask<KeyframeSequence> newTask = newTask(fileName);
+      task = SEQUENCES.putIfAbsent(fileName, newTask);
+      if (task == null)
+        task = newTask;
+    }
+    if (!task.isDone())
+      // does nothing, if a thread of the pool has already started it
+      task.run();
+    return getResult(task, fileName);
+  }
+
+  /**
+   * Returns the number of sequences requested so far.
+   *
+   * @return Number of different files requested or preloaded.
+   */
+  public static int size() {
+    return SEQUENCES.size();
+  }
+
+  private static FutureTask<KeyframeSequence> newTask(final String fileName) {
+    return new FutureTask<>(new Callable<KeyframeSequence>() {
+      @Override
+      public KeyframeSequence call() {
+        return load(fileName);
+      }
+    });
+  }
+
+  private static KeyframeSequence getResult(FutureTask<KeyframeSequence> task, String fileName) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return task.get();
+        } catch (InterruptedException e) {
+          // the sequence is needed anyway, keep waiting
+          interrupted = true;
+        }
+      }
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Cannot load keyframe file " + fileName, e.getCause());
+    } finally {
+      if (interrupted)
+        Thread.currentThread().interrupt();
+    }
+  }
+
+  private static KeyframeSequence load(String fileName) {
+    KeyframeSequence sequence = getArchive().get(fileName);
+    File textFile = KeyframeFileHandler.getFile(fileName);
+    if (sequence != null && textFile.lastModified() <= archiveTime)
+      return sequence;
+    return KeyframeFileHandler.getSequenceFromFile(textFile).toImmutable();
+  }
+
+  private static synchronized Map<String, KeyframeSequence> getArchive() {
+    if (archive != null)
+      return archive;
+    archive = Collections.emptyMap();
+    File file = KeyframeFileHandler.getFile(KeyframeArchive.DEFAULT_FILE_NAME);
+    if (!file.exists())
+      return archive;
+    try {
+      archive = KeyframeArchive.read(file);
+      archiveTime = file.lastModified();
+    } catch (IOException e) {
+      // the text files are read instead
+      e.printStackTrace();
+    }
+    return archive;
+  }
+
+  /**
+   * Pool of daemon threads for preload(...), created with its first use.
+   */
+  private static final class Loader {
+
+    static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Math.max(2, Runtime.getRuntime().availableProcessors()),
+            new ThreadFactory() {
+              @Override
+              public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "keyframe loader");
+                thread.setDaemon(true);
+                return thread;
+              }
+            });
+  }
+}
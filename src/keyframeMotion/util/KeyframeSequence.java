@@ -1,25 +1,38 @@
 package keyframeMotion.util;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /** Repräsentiert eine Sequenz von Keyframes im Speicher. 
  * 
  * Dient dazu, die einzelnen Frames nacheinander auszulesen. Speichert also 
  * auch, welches Frame zuletzt ausgelesen wurde.
+ * 
+ * A sequence can be immutable (see toImmutable()): then no frames can be 
+ * added, and the frames cannot be read with getNextFrame(), because an 
+ * immutable sequence may be shared by several agents, e.g. the sequences of 
+ * KeyframeLibrary. Each agent reads them with its own KeyframeCursor, or with 
+ * getFrame(...).
  *
  * @see Reader-Klassen zum Einlesen einer Sequenz aus einer Datei.
  */
 public class KeyframeSequence {
     
-    private ArrayList<Keyframe> sequence = new ArrayList();
+    private final List<Keyframe> sequence;
+    private final boolean immutable;
     private int nextFrameNumber = 0;
     
     /** Gibt das nächste noch nicht ausgegebene Frame zurück.
      * 
      * Nach dem letzten Frame wird null ausgegeben. Nachdem null ausgegeben wurde
      * wird wieder das erste Frame ausgegeben. 
+     * 
+     * @throws UnsupportedOperationException If the sequence is immutable, use 
+     * a KeyframeCursor instead.
      */
     public Keyframe getNextFrame(){
+        checkMutable();
         Keyframe nextFrame;
         if (nextFrameNumber == sequence.size()){
             nextFrameNumber = 0;
@@ -32,16 +45,78 @@ public class KeyframeSequence {
         return nextFrame;
     }
     
+    /** Setzt die Sequenz auf das erste Frame zurück, z.B. wenn sie 
+     * abgebrochen wurde.
+     * 
+     * @throws UnsupportedOperationException If the sequence is immutable.
+     */
+    public void reset(){
+        checkMutable();
+        nextFrameNumber = 0;
+    }
+    
     /**
      * Append a new frame to the end of the sequence.
      * 
      * @param frame The new frame to add. 
+     * @throws UnsupportedOperationException If the sequence is immutable.
      */
     public void addFrame(Keyframe frame){
+      checkMutable();
       if(frame != null)
         sequence.add(frame);
     }
     
+    /**
+     * Returns the number of frames.
+     * 
+     * @return Number of frames in the sequence. 
+     */
+    public int getFrameCount(){
+      return sequence.size();
+    }
+    
+    /**
+     * Returns a frame, independent of getNextFrame().
+     * 
+     * @param frameNumber Index of the frame, from 0 to getFrameCount() - 1.
+     * @return The frame.
+     */
+    public Keyframe getFrame(int frameNumber){
+      return sequence.get(frameNumber);
+    }
+    
+    /**
+     * Returns an immutable sequence with the frames of this one.
+     * 
+     * @return This sequence, if it is already immutable, otherwise a copy.
+     */
+    public KeyframeSequence toImmutable(){
+      return immutable ? this : new KeyframeSequence(sequence);
+    }
+    
+    /**
+     * Returns whether the sequence is immutable.
+     * 
+     * @return True if the sequence can be shared by several agents.
+     */
+    public boolean isImmutable(){
+      return immutable;
+    }
+    
     public KeyframeSequence(){        
+      sequence = new ArrayList<>();
+      immutable = false;
     }    
+    
+    private KeyframeSequence(List<Keyframe> frames){
+      sequence = Collections.unmodifiableList(new ArrayList<>(frames));
+      immutable = true;
+    }
+    
+    private void checkMutable(){
+      if (immutable)
+        throw new UnsupportedOperationException(
+                "Immutable sequence, read it with a KeyframeCursor");
+    }
 }
@@ -39,6 +39,16 @@ public class BallModel extends DatedItemModel {
     this.coords = coords;
   }
   
+  /**
+   * Sets the coordinates predicted for the actual cycle, without changing the
+   * time stamp. 
+   * 
+   * @param coords Local coordinates (see class LocalFieldView).
+   */
+  void predict(Vector3D coords){
+    this.coords = coords;
+  }
+  
   /**
    * Returns the coordinates of the ball. 
    * @return Local coordinates (see class LocalFieldView).
@@ -41,6 +41,16 @@ public class FlagModel extends DatedItemModel {
     this.coords = coords;
   }
   
+  /**
+   * Sets the coordinates predicted for the actual cycle, without changing the
+   * time stamp. 
+   * 
+   * @param coords Local coordinates (see class LocalFieldView).
+   */
+  void predict(Vector3D coords){
+    this.coords = coords;
+  }
+  
   /**
    * Returns the coordinates of the flag. 
    * @return Local coordinates (see class LocalFieldView).
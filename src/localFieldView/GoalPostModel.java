@@ -43,6 +43,16 @@ public class GoalPostModel extends DatedItemModel{
     this.coords = coords;
   }
   
+  /**
+   * Sets the coordinates predicted for the actual cycle, without changing the
+   * time stamp. 
+   * 
+   * @param coords Local coordinates (see class LocalFieldView).
+   */
+  void predict(Vector3D coords){
+    this.coords = coords;
+  }
+  
   /**
    * Returns the coordinates of the goal post. 
    * @return Local coordinates (see class LocalFieldView).
@@ -13,8 +13,8 @@ import static util.Logger.polarStr;
  */
 public class LineModel extends DatedItemModel{
   
-  private final Vector3D startPoint;
-  private final Vector3D endPoint;
+  private Vector3D startPoint;
+  private Vector3D endPoint;
   
   /**
    * Constructor. 
@@ -32,6 +32,18 @@ public class LineModel extends DatedItemModel{
     endPoint = end;
   }
   
+  /**
+   * Sets the coordinates predicted for the actual cycle, without changing the
+   * time stamp. 
+   * 
+   * @param start Local coordinates (see class LocalFieldView).
+   * @param end Local coordinates (see class LocalFieldView).
+   */
+  void predict(Vector3D start, Vector3D end){
+    startPoint = start;
+    endPoint = end;
+  }
+  
   /**
    * Returns the coordinates of the start point of the line. 
    * @return Local coordinates (see class LocalFieldView).
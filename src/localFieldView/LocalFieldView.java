@@ -1,10 +1,12 @@
 package localFieldView;
 
+import agentIO.OrientationEstimator;
 import agentIO.PerceptorInput;
 import agentIO.perceptors.LineVisionPerceptor;
 import agentIO.perceptors.PlayerVisionPerceptor;
 import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
 import org.apache.commons.math3.geometry.euclidean.threed.Vector3D;
 import util.FieldConsts;
 import util.FieldConsts.FlagID;
@@ -73,6 +75,18 @@ import util.RobotConsts.BodyPartName;
  * neck pitch joint and when the sensed item is far away from the center of 
  * the field of view (especially in horizontal direction). 
  * For our purposes the values are sufficient. 
+ * 
+ * Prediction between vision updates: 
+ * The server sends vision perceptor values only every third cycle. In the 
+ * cycles in between, and for items which are not in the field of view any 
+ * more, the coordinates are rotated by the turn of the robot since the last 
+ * cycle, which is taken from the yaw of the estimated torso orientation (see 
+ * PerceptorInput.getOrientation()), i.e. from the gyrometer. Head movements 
+ * need no prediction, because the coordinates are already corrected by the 
+ * head position of the cycle, in which the item has been seen. The walking of
+ * the robot and the movement of the items themselves are not predicted. 
+ * The time stamp of an item still tells, when it has been seen the last time.
+ * The prediction can be switched off by setEgoMotionPrediction(false). 
  *  
  * The coordinate system is right-handed, the x-axis points horizontally in front 
  * of the robot, y-axis to its left. 
@@ -91,6 +105,9 @@ public class LocalFieldView {
   
   private static double UP_TO_DATE_PERIOD = 0.05;
   
+  private boolean egoMotionPrediction = true;
+  private double lastYaw = Double.NaN;
+  
   private Logger log; 
   PerceptorInput percIn;
   String ownID, ownTeam;
@@ -156,7 +173,7 @@ public class LocalFieldView {
     double neckYaw = percIn.getJoint(RobotConsts.NeckYaw);
     double neckPitch = percIn.getJoint(RobotConsts.NeckPitch);
     
-    LinkedList<LineVisionPerceptor> lpList = percIn.getLines();
+    List<LineVisionPerceptor> lpList = percIn.getLines();
     if(lpList != null){
       lines.clear();
       for(LineVisionPerceptor lp: lpList){
@@ -205,7 +222,7 @@ public class LocalFieldView {
     else if (messageTimeStamp - ball.getTimeStamp() > UP_TO_DATE_PERIOD)
       ball.setInFOVnow(false);
     
-    LinkedList<PlayerVisionPerceptor> playerPercList = percIn.getPlayerPositions();
+    List<PlayerVisionPerceptor> playerPercList = percIn.getPlayerPositions();
     if (playerPercList != null){
       for (PlayerVisionPerceptor pvp: playerPercList){
         String playerKey = pvp.getTeam() + pvp.getID();
@@ -233,6 +250,21 @@ public class LocalFieldView {
     for( PlayerModel pm: allOtherPlayers.values())
       if (messageTimeStamp - pm.getTimeStamp() > UP_TO_DATE_PERIOD) 
         pm.setInFOVnow(false);    
+    
+    predictEgoMotion(messageTimeStamp);
+  }
+  
+  /**
+   * Switches the prediction of the coordinates between vision updates on or 
+   * off. 
+   * 
+   * See comment on this class for further details. 
+   * 
+   * @param on True (default) to rotate the coordinates of items, which have 
+   * not been seen in the actual cycle, by the turn of the robot. 
+   */
+  public void setEgoMotionPrediction(boolean on) {
+    egoMotionPrediction = on;
   }
 
   /**
@@ -321,6 +353,52 @@ public class LocalFieldView {
   }
   
   
+  /**
+   * Rotates the coordinates of all items, which have not been seen in the 
+   * actual cycle, by the turn of the robot since the last cycle. 
+   */
+  private void predictEgoMotion(double messageTimeStamp) {
+    OrientationEstimator orientation = percIn.getOrientation();
+    double yaw = orientation.isValid() ? orientation.getYaw() : Double.NaN;
+    double turn = yaw - lastYaw;
+    lastYaw = yaw;
+    if (!egoMotionPrediction || Double.isNaN(turn) || turn == 0)
+      return;
+    turn = Math.atan2(Math.sin(turn), Math.cos(turn));
+    double cos = Math.cos(turn);
+    double sin = Math.sin(turn);
+    
+    for (GoalPostModel g : goals.values())
+      if (g.getTimeStamp() < messageTimeStamp)
+        g.predict(rotate(g.getCoords(), cos, sin));
+    for (FlagModel f : flags.values())
+      if (f.getTimeStamp() < messageTimeStamp)
+        f.predict(rotate(f.getCoords(), cos, sin));
+    if (ball.getTimeStamp() < messageTimeStamp)
+      ball.predict(rotate(ball.getCoords(), cos, sin));
+    for (LineModel l : lines)
+      if (l.getTimeStamp() < messageTimeStamp)
+        l.predict(rotate(l.getStart(), cos, sin), rotate(l.getEnd(), cos, sin));
+    for (PlayerModel pm : allOthPlayersList)
+      if (pm.getTimeStamp() < messageTimeStamp)
+        for (BodyPartName id : BodyPartName.values()) {
+          Vector3D coords = pm.getBodyPart(id);
+          if (coords != null)
+            pm.predict(id, rotate(coords, cos, sin));
+        }
+  }
+  
+  /**
+   * Returns the passed coordinates, as seen after the robot turned to the 
+   * left by the angle given by its cosine and sine. 
+   */
+  private static Vector3D rotate(Vector3D coords, double cos, double sin) {
+    if (coords.isNaN())
+      return coords;
+    return new Vector3D(coords.getX() * cos + coords.getY() * sin,
+            coords.getY() * cos - coords.getX() * sin, coords.getZ());
+  }
+  
   /**
    * Returns the passed coordinates relative to the center of the agents head 
    * with the x-axis pointing horizontally in front of the robot. 
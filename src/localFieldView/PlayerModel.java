@@ -53,6 +53,17 @@ public class PlayerModel extends DatedItemModel{
     this.bodyParts = bodyParts;
   }
   
+  /**
+   * Sets the coordinates of a body part predicted for the actual cycle, 
+   * without changing the time stamp. 
+   * 
+   * @param b The body part.
+   * @param coords Local coordinates (see class LocalFieldView).
+   */
+  void predict(BodyPartName b, Vector3D coords){
+    bodyParts.put(b, coords);
+  }
+  
   /**
    * Returns the id of the player.
    * 
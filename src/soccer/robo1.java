@@ -94,6 +94,10 @@ public class robo1 {
     percIn = new PerceptorInput(sc);
     effOut = new EffectorOutput(sc);
     motion = new KeyframeMotion(effOut, percIn, log);
+    // The fall protection aborts every running movement, also kicks and 
+    // turns. It stays off until it is shown, that leaning kicks and turns do
+    // not trigger it. To turn it on: 
+    // motion.setFallProtection(new keyframeMotion.FallPredictor(percIn), 0.5);
     localView = new LocalFieldView(percIn, log, team, id);
     ball = localView.getBall();
     lookAround = new LookAroundMotion(percIn, effOut, log);
@@ -0,0 +1,195 @@
+package teamCommunication;
+
+import agentIO.EffectorOutput;
+import agentIO.PerceptorInput;
+
+/**
+ * Decides, when an agent may say something, and what.
+ *
+ * The server delivers only a limited number of say messages of a team to
+ * each player (e.g. only one in every second cycle), so when several
+ * teammates say something at the same time, most of the messages are lost.
+ * This class gives the players of a team their turns one after the other:
+ * the server cycles are divided into slots of CYCLES_PER_SLOT cycles, and a
+ * player may say something only in the slots with
+ * slot number % team size == player number - 1. All players of the team
+ * compute the same slots, because they are derived from the server time and
+ * the fixed CYCLE_MILLIS, not from the cycle length measured by each agent.
+ *
+ * Between its slots, an agent collects the messages it wants to send with
+ * offer(...). Each message has a key and a priority: a message replaces a
+ * pending message with the same key (e.g. a newer ball position replaces the
+ * older one), and in its slot the agent says the pending message with the
+ * highest priority (the oldest one, if several have the same priority).
+ *
+ * Usage: create one scheduler per agent, offer messages in the think()-method,
+ * and call update() once per server cycle in the act()-method before
+ * EffectorOutput.sendAgentMessage().
+ */
+public class SayScheduler {
+
+  /** Cycle length in ms, which all players of the team use for the slots. */
+  public static final int CYCLE_MILLIS = 20;
+  /** Number of server cycles per slot. */
+  public static final int CYCLES_PER_SLOT = 2;
+  /** Maximum number of pending messages. */
+  public static final int CAPACITY = 16;
+
+  private final PerceptorInput percIn;
+  private final EffectorOutput effOut;
+  private final int player;
+  private final int teamSize;
+
+  // pending messages, in the order of offering
+  private final int[] keys = new int[CAPACITY];
+  private final int[] priorities = new int[CAPACITY];
+  private final String[] messages = new String[CAPACITY];
+  private int pending;
+  private long lastSlot = -1;
+
+  /**
+   * Constructor.
+   *
+   * @param percIn Perceptor input of the agent, for the server time.
+   * @param effOut Effector output of the agent, which sends the messages.
+   * @param player Number of the player, from 1 to teamSize.
+   * @param teamSize Number of players of the team, which use a scheduler.
+   */
+  public SayScheduler(PerceptorInput percIn, EffectorOutput effOut, int player, int teamSize) {
+    if (teamSize < 1 || teamSize > TeamMessage.MAX_PLAYER)
+      throw new IllegalArgumentException("Invalid team size: " + teamSize);
+    if (player < 1 || player > teamSize)
+      throw new IllegalArgumentException("Invalid player: " + player);
+    this.percIn = percIn;
+    this.effOut = effOut;
+    this.player = player;
+    this.teamSize = teamSize;
+  }
+
+  /**
+   * Adds a message to be said in the next slot of the player.
+   *
+   * If a message with the same key is pending, it is replaced, and keeps its
+   * place among the messages of the same priority. If there are
+   * already CAPACITY messages pending, the message with the lowest priority
+   * (the newest one, if several have the same priority) is dropped.
+   *
+   * @param key Kind of the message, e.g. a TeamMessage.INTENT_-constant.
+   * @param priority Priority, higher priorities are said first.
+   * @param message Text for the say effector, e.g. from
+   * TeamMessageCodec.encode(...).
+   */
+  public void offer(int key, int priority, String message) {
+    int i = indexOf(key);
+    if (i >= 0) {
+      priorities[i] = priority;
+      messages[i] = message;
+      return;
+    }
+    if (pending == CAPACITY) {
+      int lowest = lowestPriority();
+      if (priorities[lowest] > priority)
+        return;
+      remove(lowest);
+    }
+    keys[pending] = key;
+    priorities[pending] = priority;
+    messages[pending] = message;
+    pending++;
+  }
+
+  /**
+   * Says the pending message with the highest priority, if the actual cycle
+   * belongs to a slot of the player, and no message has been said in this
+   * slot.
+   *
+   * @return The said message, or null if nothing has been said.
+   */
+  public String update() {
+    long slot = getSlot();
+    if (slot == lastSlot || !isSlotOf(slot) || pending == 0)
+      return null;
+    lastSlot = slot;
+    int highest = highestPriority();
+    String message = messages[highest];
+    remove(highest);
+    effOut.setSayMessage(message);
+    return message;
+  }
+
+  /**
+   * Returns, whether the player may say something in the actual cycle.
+   *
+   * @return True if the actual cycle belongs to a slot of the player.
+   */
+  public boolean isMySlot() {
+    return isSlotOf(getSlot());
+  }
+
+  /**
+   * Returns, which player may say something in the actual cycle.
+   *
+   * @return Player number from 1 to the team size.
+   */
+  public int getSpeaker() {
+    return (int) (getSlot() % teamSize) + 1;
+  }
+
+  /**
+   * Returns the number of pending messages.
+   *
+   * @return Number of messages offered, but not yet said.
+   */
+  public int getPendingCount() {
+    return pending;
+  }
+
+  /**
+   * Drops all pending messages.
+   */
+  public void clear() {
+    for (int i = 0; i < pending; i++)
+      messages[i] = null;
+    pending = 0;
+  }
+
+  private long getSlot() {
+    long cycle = Math.round(percIn.getServerTime() * 1000 / CYCLE_MILLIS);
+    return cycle / CYCLES_PER_SLOT;
+  }
+
+  private boolean isSlotOf(long slot) {
+    return slot % teamSize == player - 1;
+  }
+
+  private int indexOf(int key) {
+    for (int i = 0; i < pending; i++)
+      if (keys[i] == key)
+        return i;
+    return -1;
+  }
+
+  private int highestPriority() {
+    int best = 0;
+    for (int i = 1; i < pending; i++)
+      if (priorities[i] > priorities[best])
+        best = i;
+    return best;
+  }
+
+  private int lowestPriority() {
+    int worst = pending - 1;
+    for (int i = pending - 2; i >= 0; i--)
+      if (priorities[i] < priorities[worst])
+        worst = i;
+    return worst;
+  }
+
+  private void remove(int i) {
+    pending--;
+    System.arraycopy(keys, i + 1, keys, i, pending - i);
+    System.arraycopy(priorities, i + 1, priorities, i, pending - i);
+    System.arraycopy(messages, i + 1, messages, i, pending - i);
+    messages[pending] = null;
+  }
+}
@@ -0,0 +1,238 @@
+package teamCommunication;
+
+/**
+ * Content of a message between the robots of a team.
+ *
+ * An object of this class holds the fields, which TeamMessageCodec packs into
+ * a say message: the number of the sender, its position, its view of the
+ * ball, its role and its intent. The object is mutable, so the same object
+ * can be filled again in every cycle. All values are stored with the
+ * precision of the message, so after decoding they are rounded:
+ * - positions: 5 cm, within the range of +-16 m (x) and +-11 m (y)
+ * - heading: 2 degrees
+ * - age of the ball position: 0.1 s, up to MAX_BALL_AGE
+ *
+ * Coordinates are given in the field coordinate system (see
+ * util.FieldConsts): in meters, and angles in radians.
+ */
+public class TeamMessage {
+
+  public static final int ROLE_UNKNOWN = 0;
+  public static final int ROLE_GOALIE = 1;
+  public static final int ROLE_DEFENDER = 2;
+  public static final int ROLE_MIDFIELDER = 3;
+  public static final int ROLE_STRIKER = 4;
+  /** Number of roles, roles 5 to 7 can be defined by the agents. */
+  public static final int ROLES = 8;
+
+  public static final int INTENT_NONE = 0;
+  public static final int INTENT_SEARCH_BALL = 1;
+  public static final int INTENT_GO_TO_BALL = 2;
+  public static final int INTENT_KICK = 3;
+  public static final int INTENT_DEFEND = 4;
+  public static final int INTENT_SUPPORT = 5;
+  public static final int INTENT_FALLEN = 6;
+  /** Number of intents, intents 7 to 15 can be defined by the agents. */
+  public static final int INTENTS = 16;
+
+  /** Highest player number. */
+  public static final int MAX_PLAYER = 11;
+  /** Ball positions older than this (in seconds) are sent with this age. */
+  public static final double MAX_BALL_AGE = 6.2;
+
+  static final double POSITION_STEP = 0.05;
+  static final int X_STEPS = 640;
+  static final int Y_STEPS = 440;
+  static final int HEADING_STEPS = 180;
+  static final double AGE_STEP = 0.1;
+  static final int AGE_STEPS = 62;
+
+  // the fields as quantized values, -1 for unknown positions
+  int sender;
+  int poseX = -1;
+  int poseY;
+  int heading;
+  int ballX = -1;
+  int ballY;
+  int ballAge;
+  int role;
+  int intent;
+
+  /**
+   * Clears all fields.
+   */
+  public void clear() {
+    sender = 0;
+    poseX = -1;
+    ballX = -1;
+    role = ROLE_UNKNOWN;
+    intent = INTENT_NONE;
+  }
+
+  /**
+   * Sets the number of the sending robot.
+   *
+   * @param player Player number from 1 to MAX_PLAYER, or 0 if unknown.
+   */
+  public void setSender(int player) {
+    sender = check(player, MAX_PLAYER + 1, "player");
+  }
+
+  /**
+   * Sets the position of the sending robot.
+   *
+   * @param x X-coordinate in meters.
+   * @param y Y-coordinate in meters.
+   * @param heading Direction of the robot in radians.
+   */
+  public void setPose(double x, double y, double heading) {
+    poseX = quantize(x, X_STEPS);
+    poseY = quantize(y, Y_STEPS);
+    double degrees = Math.toDegrees(heading) / 2;
+    this.heading = (int) (((Math.round(degrees) % HEADING_STEPS) + HEADING_STEPS) % HEADING_STEPS);
+  }
+
+  /**
+   * Marks the position of the sending robot as unknown.
+   */
+  public void clearPose() {
+    poseX = -1;
+  }
+
+  /**
+   * Sets the position of the ball, as seen by the sending robot.
+   *
+   * @param x X-coordinate in meters.
+   * @param y Y-coordinate in meters.
+   * @param age Time in seconds, since the ball has been seen there.
+   */
+  public void setBall(double x, double y, double age) {
+    ballX = quantize(x, X_STEPS);
+    ballY = quantize(y, Y_STEPS);
+    ballAge = (int) Math.max(0, Math.min(AGE_STEPS, Math.round(age / AGE_STEP)));
+  }
+
+  /**
+   * Marks the position of the ball as unknown.
+   */
+  public void clearBall() {
+    ballX = -1;
+  }
+
+  /**
+   * Sets the role of the sending robot.
+   *
+   * @param role One of the ROLE_-constants, or an own role below ROLES.
+   */
+  public void setRole(int role) {
+    this.role = check(role, ROLES, "role");
+  }
+
+  /**
+   * Sets the intent of the sending robot.
+   *
+   * @param intent One of the INTENT_-constants, or an own intent below INTENTS.
+   */
+  public void setIntent(int intent) {
+    this.intent = check(intent, INTENTS, "intent");
+  }
+
+  public int getSender() {
+    return sender;
+  }
+
+  public boolean hasPose() {
+    return poseX >= 0;
+  }
+
+  public double getPoseX() {
+    return position(poseX, X_STEPS);
+  }
+
+  public double getPoseY() {
+    return position(poseY, Y_STEPS);
+  }
+
+  /**
+   * Returns the direction of the sending robot.
+   *
+   * @return Angle in radians from -PI to PI.
+   */
+  public double getHeading() {
+    int degrees = heading * 2;
+    return Math.toRadians(degrees > 180 ? degrees - 360 : degrees);
+  }
+
+  public boolean hasBall() {
+    return ballX >= 0;
+  }
+
+  public double getBallX() {
+    return position(ballX, X_STEPS);
+  }
+
+  public double getBallY() {
+    return position(ballY, Y_STEPS);
+  }
+
+  public double getBallAge() {
+    return ballAge * AGE_STEP;
+  }
+
+  public int getRole() {
+    return role;
+  }
+
+  public int getIntent() {
+    return intent;
+  }
+
+  /**
+   * Copies all fields from another message.
+   *
+   * @param other The message to copy.
+   */
+  public void set(TeamMessage other) {
+    sender = other.sender;
+    poseX = other.poseX;
+    poseY = other.poseY;
+    heading = other.heading;
+    ballX = other.ballX;
+    ballY = other.ballY;
+    ballAge = other.ballAge;
+    role = other.role;
+    intent = other.intent;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder s = new StringBuilder();
+    s.append("player ").append(sender).append(" role ").append(role)
+            .append(" intent ").append(intent);
+    if (hasPose())
+      s.append(String.format(" pose (%.2f, %.2f, %.0f)",
+              getPoseX(), getPoseY(), Math.toDegrees(getHeading())));
+    if (hasBall())
+      s.append(String.format(" ball (%.2f, %.2f) age %.1f",
+              getBallX(), getBallY(), getBallAge()));
+    return s.toString();
+  }
+
+  /**
+   * Returns the step of a position, from 0 to steps, clamped to the range.
+   */
+  private static int quantize(double position, int steps) {
+    long step = Math.round(position / POSITION_STEP) + steps / 2;
+    return (int) Math.max(0, Math.min(steps, step));
+  }
+
+  private static double position(int step, int steps) {
+    return (step - steps / 2) * POSITION_STEP;
+  }
+
+  private static int check(int value, int count, String name) {
+    if (value < 0 || value >= count)
+      throw new IllegalArgumentException("Invalid " + name + ": " + value);
+    return value;
+  }
+}
@@ -0,0 +1,225 @@
+package teamCommunication;
+
+import java.util.Arrays;
+
+/**
+ * Packs a TeamMessage into a say message and back.
+ *
+ * The say effector sends at most 20 characters, and only the printable ASCII
+ * characters except the space and the brackets are allowed, which are 92
+ * characters. So the codec does not write the fields as text, but as one
+ * large number in a mixed radix system: every field is a digit with just as
+ * many values as it needs (e.g. 12 for the player number), and the number is
+ * written in base 92 with the allowed characters as digits. This needs 10
+ * characters for all fields, while a text like "7 -3.45 2.10 ..." would not
+ * even fit into 20.
+ *
+ * Message layout: the 10 digits of the number, followed by 2 digits of a
+ * checksum (Fletcher's checksum modulo 92), so messages of other teams and
+ * corrupted messages are rejected. The lowest digit of the number is the
+ * version of the layout, so later versions can add fields while agents with
+ * this version reject them.
+ *
+ * Encoding and decoding use preallocated arrays only. decode(...) reads the
+ * characters of the heard message directly, without building strings.
+ * An object of this class is not thread-safe, use one per agent.
+ */
+public class TeamMessageCodec {
+
+  public static final int VERSION = 1;
+  /** Maximum length of a say message. */
+  public static final int MAX_LENGTH = 20;
+
+  private static final char[] ALPHABET = alphabet();
+  private static final int BASE = ALPHABET.length;
+  /** Digit value of each ASCII character, -1 if not in the alphabet. */
+  private static final int[] DIGITS = digits();
+
+  private static final int VERSIONS = 8;
+  /** Number of values of each field, in the order of the digits. */
+  private static final int[] RADICES = {
+    VERSIONS,
+    TeamMessage.MAX_PLAYER + 1,
+    TeamMessage.X_STEPS + 2, TeamMessage.Y_STEPS + 1, TeamMessage.HEADING_STEPS,
+    TeamMessage.X_STEPS + 2, TeamMessage.Y_STEPS + 1, TeamMessage.AGE_STEPS + 1,
+    TeamMessage.ROLES,
+    TeamMessage.INTENTS
+  };
+  private static final int PAYLOAD_LENGTH = payloadLength();
+  private static final int CHECKSUM_LENGTH = 2;
+  /** Length of the messages of this version. */
+  public static final int LENGTH = PAYLOAD_LENGTH + CHECKSUM_LENGTH;
+
+  private final int[] fields = new int[RADICES.length];
+  /** The packed number, as 32-bit words, least significant first. */
+  private final int[] number = new int[5];
+  private final char[] chars = new char[LENGTH];
+
+  /**
+   * Packs a message into the characters of a say message.
+   *
+   * @param message The message to pack.
+   * @param out Array for the characters, at least LENGTH long.
+   * @return Number of characters written, LENGTH.
+   */
+  public int encode(TeamMessage message, char[] out) {
+    fields[0] = VERSION;
+    fields[1] = message.sender;
+    fields[2] = message.poseX + 1;
+    fields[3] = message.hasPose() ? message.poseY : 0;
+    fields[4] = message.hasPose() ? message.heading : 0;
+    fields[5] = message.ballX + 1;
+    fields[6] = message.hasBall() ? message.ballY : 0;
+    fields[7] = message.hasBall() ? message.ballAge : 0;
+    fields[8] = message.role;
+    fields[9] = message.intent;
+
+    clear(number);
+    for (int i = RADICES.length - 1; i >= 0; i--)
+      multiplyAdd(number, RADICES[i], fields[i]);
+    int sum1 = 0;
+    int sum2 = 0;
+    for (int i = 0; i < PAYLOAD_LENGTH; i++) {
+      int digit = divide(number, BASE);
+      out[i] = ALPHABET[digit];
+      sum1 = (sum1 + digit) % BASE;
+      sum2 = (sum2 + sum1) % BASE;
+    }
+    out[PAYLOAD_LENGTH] = ALPHABET[sum1];
+    out[PAYLOAD_LENGTH + 1] = ALPHABET[sum2];
+    return LENGTH;
+  }
+
+  /**
+   * Packs a message into a say message.
+   *
+   * @param message The message to pack.
+   * @return Text for EffectorOutput.setSayMessage(...).
+   */
+  public String encode(TeamMessage message) {
+    return new String(chars, 0, encode(message, chars));
+  }
+
+  /**
+   * Unpacks a heard message.
+   *
+   * @param text The heard message, e.g. HearPerceptor.getMessage().
+   * @param message The message to fill, it is left unchanged if the text is
+   * not a valid message of this version.
+   * @return True if the text is a valid message, false if it has another
+   * length, version or checksum.
+   */
+  public boolean decode(CharSequence text, TeamMessage message) {
+    if (text == null || text.length() != LENGTH)
+      return false;
+    if (!isTeamMessage(text))
+      return false;
+    clear(number);
+    for (int i = PAYLOAD_LENGTH - 1; i >= 0; i--)
+      multiplyAdd(number, BASE, digit(text.charAt(i)));
+    for (int i = 0; i < RADICES.length; i++)
+      fields[i] = divide(number, RADICES[i]);
+    if (fields[0] != VERSION || !isZero(number))
+      return false;
+
+    message.sender = fields[1];
+    message.poseX = fields[2] - 1;
+    message.poseY = fields[3];
+    message.heading = fields[4];
+    message.ballX = fields[5] - 1;
+    message.ballY = fields[6];
+    message.ballAge = fields[7];
+    message.role = fields[8];
+    message.intent = fields[9];
+    return true;
+  }
+
+  /**
+   * Returns, whether a text is a message of this codec, of any version.
+   *
+   * @param text The heard message.
+   * @return True if the checksum is valid.
+   */
+  public static boolean isTeamMessage(CharSequence text) {
+    if (text == null || text.length() < CHECKSUM_LENGTH + 1 || text.length() > MAX_LENGTH)
+      return false;
+    int payload = text.length() - CHECKSUM_LENGTH;
+    int sum1 = 0;
+    int sum2 = 0;
+    for (int i = 0; i < text.length(); i++)
+      if (digit(text.charAt(i)) < 0)
+        return false;
+    for (int i = 0; i < payload; i++) {
+      sum1 = (sum1 + digit(text.charAt(i))) % BASE;
+      sum2 = (sum2 + sum1) % BASE;
+    }
+    return digit(text.charAt(payload)) == sum1 && digit(text.charAt(payload + 1)) == sum2;
+  }
+
+  private static int digit(char c) {
+    return c < DIGITS.length ? DIGITS[c] : -1;
+  }
+
+  // arithmetic on the packed number
+
+  private static void clear(int[] n) {
+    for (int i = 0; i < n.length; i++)
+      n[i] = 0;
+  }
+
+  private static boolean isZero(int[] n) {
+    for (int i = 0; i < n.length; i++)
+      if (n[i] != 0)
+        return false;
+    return true;
+  }
+
+  /** n = n * factor + summand */
+  private static void multiplyAdd(int[] n, int factor, int summand) {
+    long carry = summand;
+    for (int i = 0; i < n.length; i++) {
+      long t = (n[i] & 0xFFFFFFFFL) * factor + carry;
+      n[i] = (int) t;
+      carry = t >>> 32;
+    }
+    if (carry != 0)
+      throw new ArithmeticException("Team message too large");
+  }
+
+  /** n = n / divisor, returns the remainder */
+  private static int divide(int[] n, int divisor) {
+    long remainder = 0;
+    for (int i = n.length - 1; i >= 0; i--) {
+      long t = (remainder << 32) | (n[i] & 0xFFFFFFFFL);
+      n[i] = (int) (t / divisor);
+      remainder = t % divisor;
+    }
+    return (int) remainder;
+  }
+
+  private static char[] alphabet() {
+    StringBuilder chars = new StringBuilder();
+    for (char c = '!'; c <= '~'; c++)
+      if (c != '(' && c != ')')
+        chars.append(c);
+    return chars.toString().toCharArray();
+  }
+
+  private static int[] digits() {
+    int[] digits = new int[128];
+    Arrays.fill(digits, -1);
+    for (int i = 0; i < ALPHABET.length; i++)
+      digits[ALPHABET[i]] = i;
+    return digits;
+  }
+
+  /**
+   * Returns the number of base-92 digits needed for the largest number.
+   */
+  private static int payloadLength() {
+    double bits = 0;
+    for (int radix : RADICES)
+      bits += Math.log(radix);
+    return (int) Math.ceil(bits / Math.log(BASE) - 1e-9);
+  }
+}
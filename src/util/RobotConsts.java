@@ -206,6 +206,25 @@ public class RobotConsts {
         return effectorIDs[i];
     }
     
+   /** Returns the perceptor identifier used in SimSpark messages. <br>
+    * 
+    * This method should not be used by students/pupils, who lern robotics/AI
+    * with RoboNewbie. It is necessary to implement the SimSpark TCP protocol, 
+    * and has nothing to do with robotics/AI.  <br>
+    * Students, please see util.RobotConsts.NeckPitch, if you need an "ID" of a
+    * hinge joint.
+    * 
+    * @param i Joint index, represented as a save constant hinge joint name, for 
+    * example RobotConsts.NeckPitch . Use just the constants in RobotConsts, 
+    * because, if this index is invalid, you get a memory access error.
+    * @return Perceptor identifier corresponding to the joint name, example:
+    * parameter RobotConsts.NeckPitch results in the return "hj2". 
+    * @see util.RobotConsts#NeckPitch
+    */
+    public static String getPerceptorID(int i){
+        return perceptorIDs[i];
+    }
+    
    /** Returns the perceptor index for parsing SimSpark messages. <br>
     * 
     * This method should not be used by students/pupils, who lern robotics/AI
@@ -0,0 +1,532 @@
+package decoderGenerator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Build time generator for the perceptor decoder.
+ *
+ * Reads the declarative description of the SimSpark perceptor grammar (see
+ * tools/perceptors.schema for the syntax) and writes the Java source of an
+ * abstract decoder class. The generated class walks a server message with an
+ * agentIO.perceptorInputUtil.MessageScanner, stores all values in primitive
+ * fields and calls one abstract callback per described item. The callbacks
+ * are implemented by agentIO.PerceptorInput.
+ *
+ * The generated code contains one method per perceptor and per object, the
+ * tags are matched by a switch on their length and a byte comparison, so
+ * there are no casts, no exceptions and no object allocations while a message
+ * is decoded.
+ *
+ * Usage: java decoderGenerator.PerceptorDecoderGenerator [schema file]
+ * [output source folder]
+ *
+ * The generator is called by the build script (see build.xml), so it is not
+ * necessary to call it manually.
+ */
+public class PerceptorDecoderGenerator {
+
+  public static void main(String[] args) throws IOException {
+    if (args.length != 2) {
+      System.err.println("Usage: PerceptorDecoderGenerator <schema file> <output source folder>");
+      System.exit(1);
+    }
+    PerceptorDecoderGenerator generator = new PerceptorDecoderGenerator();
+    generator.readSchema(new File(args[0]));
+    File target = new File(args[1], generator.className.replace('.', File.separatorChar) + ".java");
+    target.getParentFile().mkdirs();
+    try (Writer out = new OutputStreamWriter(new FileOutputStream(target), StandardCharsets.UTF_8)) {
+      out.write(generator.generate(new File(args[0]).getName()));
+    }
+    System.out.println("Generated " + target);
+  }
+
+  /** A value inside a list, like "real serverTime". */
+  private static class Value {
+    String kind;
+    String field;
+  }
+
+  /** A sub-list with a fixed tag, like "(now 12.34)". */
+  private static class ListRule {
+    String tag;
+    List<Value> values = new ArrayList<>();
+    String call;
+  }
+
+  /** A perceptor or an object, that is a list containing other lists. */
+  private static class Block {
+    boolean perceptor;
+    String name;
+    String constant;
+    String method;
+    List<Value> args = new ArrayList<>();
+    List<ListRule> lists = new ArrayList<>();
+    Block object;
+    String open;
+    String call;
+  }
+
+  private String className;
+  private final List<Block> perceptors = new ArrayList<>();
+  private final List<Block> allBlocks = new ArrayList<>();
+  private final Map<String, String> fieldKinds = new LinkedHashMap<>();
+  private final Map<String, String> tagConstants = new TreeMap<>();
+  private final List<String> callbacks = new ArrayList<>();
+
+  private void readSchema(File schema) throws IOException {
+    List<Block> stack = new ArrayList<>();
+    int lineNo = 0;
+    try (BufferedReader in = new BufferedReader(
+            new InputStreamReader(new FileInputStream(schema), StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = in.readLine()) != null) {
+        lineNo++;
+        int comment = line.indexOf('#');
+        if (comment >= 0)
+          line = line.substring(0, comment);
+        line = line.trim();
+        if (line.isEmpty())
+          continue;
+        String[] t = line.split("\\s+");
+        String where = schema + ":" + lineNo + ": ";
+        switch (t[0]) {
+          case "decoder":
+            className = t[1];
+            break;
+          case "perceptor": {
+            if (!stack.isEmpty())
+              throw new IOException(where + "perceptors cannot be nested");
+            Block b = new Block();
+            b.perceptor = true;
+            b.name = t[1];
+            b.constant = t[1].toUpperCase();
+            b.method = "decode" + capitalize(t[1]);
+            parseValues(t, 2, b.args, b, null, where);
+            perceptors.add(b);
+            allBlocks.add(b);
+            stack.add(b);
+            tag(b.name);
+            break;
+          }
+          case "list": {
+            if (stack.isEmpty())
+              throw new IOException(where + "list outside of a perceptor");
+            ListRule r = new ListRule();
+            r.tag = t[1];
+            parseValues(t, 2, r.values, null, r, where);
+            stack.get(stack.size() - 1).lists.add(r);
+            tag(r.tag);
+            break;
+          }
+          case "object": {
+            if (stack.isEmpty())
+              throw new IOException(where + "object outside of a perceptor");
+            Block parent = stack.get(stack.size() - 1);
+            if (parent.object != null)
+              throw new IOException(where + "only one object per block is allowed");
+            Block b = new Block();
+            b.name = t[1];
+            b.method = "decode" + capitalize(t[1]);
+            declare(t[1], "symbol", where);
+            for (int i = 2; i + 1 < t.length; i += 2) {
+              if (t[i].equals("open"))
+                b.open = callback(t[i + 1]);
+              else if (t[i].equals("call"))
+                b.call = callback(t[i + 1]);
+              else
+                throw new IOException(where + "unexpected " + t[i]);
+            }
+            parent.object = b;
+            allBlocks.add(b);
+            stack.add(b);
+            break;
+          }
+          case "end":
+            if (stack.isEmpty())
+              throw new IOException(where + "end without perceptor or object");
+            stack.remove(stack.size() - 1);
+            break;
+          default:
+            throw new IOException(where + "unknown statement " + t[0]);
+        }
+      }
+    }
+    if (!stack.isEmpty())
+      throw new IOException(schema + ": missing end");
+    if (className == null)
+      throw new IOException(schema + ": missing decoder statement");
+  }
+
+  private void parseValues(String[] t, int from, List<Value> values, Block block,
+          ListRule rule, String where) throws IOException {
+    for (int i = from; i < t.length; i += 2) {
+      if (i + 1 >= t.length)
+        throw new IOException(where + "missing name after " + t[i]);
+      if (t[i].equals("call")) {
+        if (block != null)
+          block.call = callback(t[i + 1]);
+        else
+          rule.call = callback(t[i + 1]);
+        continue;
+      }
+      if (!t[i].equals("real") && !t[i].equals("symbol") && !t[i].equals("text"))
+        throw new IOException(where + "unknown kind " + t[i]);
+      Value v = new Value();
+      v.kind = t[i];
+      v.field = t[i + 1];
+      declare(v.field, v.kind.equals("real") ? "real" : "symbol", where);
+      values.add(v);
+    }
+  }
+
+  private void declare(String field, String kind, String where) throws IOException {
+    String known = fieldKinds.get(field);
+    if (known != null && !known.equals(kind))
+      throw new IOException(where + "field " + field + " declared as " + known + " and " + kind);
+    fieldKinds.put(field, kind);
+  }
+
+  private String callback(String name) {
+    if (!callbacks.contains(name))
+      callbacks.add(name);
+    return name;
+  }
+
+  private void tag(String tag) {
+    if (!tagConstants.containsKey(tag)) {
+      String constant = "TAG_" + tag.toUpperCase().replaceAll("[^A-Z0-9]", "_");
+      while (tagConstants.containsValue(constant))
+        constant += "_";
+      tagConstants.put(tag, constant);
+    }
+  }
+
+  private static String capitalize(String s) {
+    return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+  }
+
+  // ---------------------------------------------------------------- output
+
+  private StringBuilder out;
+  private int indent;
+
+  private void line(String s) {
+    if (!s.isEmpty())
+      for (int i = 0; i < indent; i++)
+        out.append("  ");
+    out.append(s).append('\n');
+  }
+
+  private String generate(String schemaName) {
+    out = new StringBuilder();
+    int dot = className.lastIndexOf('.');
+    String pkg = className.substring(0, dot);
+    String simpleName = className.substring(dot + 1);
+
+    line("// Generated by decoderGenerator.PerceptorDecoderGenerator from");
+    line("// tools/" + schemaName + " - do not edit, change the schema instead.");
+    line("package " + pkg + ";");
+    line("");
+    line("/**");
+    line(" * Decoder for server messages, generated from the perceptor schema.");
+    line(" *");
+    line(" * A subclass implements the callbacks, which are called for every decoded");
+    line(" * perceptor, object or list, and reads the values from the protected fields.");
+    line(" * Symbols are stored as byte ranges of the message (...Start, ...Length, a");
+    line(" * length of -1 means, that the symbol has not been sent), use the methods of");
+    line(" * field \"in\" to compare or convert them.");
+    line(" */");
+    line("public abstract class " + simpleName + " {");
+    indent++;
+    line("");
+    line("/** Perceptor type of a list, that is not described in the schema. */");
+    line("public static final int UNKNOWN_PERCEPTOR = -1;");
+    for (int i = 0; i < perceptors.size(); i++) {
+      line("/** Perceptor type \"" + perceptors.get(i).name + "\". */");
+      line("public static final int " + perceptors.get(i).constant + " = " + i + ";");
+    }
+    line("/** Number of perceptor types described in the schema. */");
+    line("public static final int PERCEPTOR_COUNT = " + perceptors.size() + ";");
+    line("");
+    StringBuilder names = new StringBuilder();
+    for (Block b : perceptors) {
+      if (names.length() > 0)
+        names.append(", ");
+      names.append('"').append(b.name).append('"');
+    }
+    line("private static final String[] PERCEPTOR_NAMES = {" + names + "};");
+    line("");
+    for (Map.Entry<String, String> e : tagConstants.entrySet()) {
+      StringBuilder bytes = new StringBuilder();
+      for (char c : e.getKey().toCharArray()) {
+        if (bytes.length() > 0)
+          bytes.append(", ");
+        bytes.append('\'').append(c).append('\'');
+      }
+      line("private static final byte[] " + e.getValue() + " = {" + bytes + "};");
+    }
+    line("");
+    line("/** Scanner over the message, which is actually decoded. */");
+    line("protected final MessageScanner in = new MessageScanner();");
+    line("");
+    for (Map.Entry<String, String> e : fieldKinds.entrySet()) {
+      if (e.getValue().equals("real"))
+        line("protected double " + e.getKey() + ";");
+      else
+        line("protected int " + e.getKey() + "Start, " + e.getKey() + "Length = -1;");
+    }
+    line("");
+    line("/**");
+    line(" * Returns the name of a perceptor type, as used in server messages.");
+    line(" *");
+    line(" * @param perceptor One of the perceptor type constants.");
+    line(" * @return The name, or \"unknown\" for UNKNOWN_PERCEPTOR.");
+    line(" */");
+    line("public static String getPerceptorName(int perceptor) {");
+    line("  return perceptor >= 0 && perceptor < PERCEPTOR_COUNT ? PERCEPTOR_NAMES[perceptor] : \"unknown\";");
+    line("}");
+    line("");
+    generateDecode();
+    generatePerceptorOf();
+    for (Block b : allBlocks)
+      generateBlock(b);
+    for (String cb : callbacks)
+      line("protected abstract void " + cb + "();");
+    line("");
+    line("/**");
+    line(" * Called for a perceptor, which does not match the schema. Its remaining");
+    line(" * content has been skipped already.");
+    line(" *");
+    line(" * @param perceptor Perceptor type, or UNKNOWN_PERCEPTOR.");
+    line(" * @param start Offset of the opening bracket in the message buffer.");
+    line(" * @param end Offset behind the last byte, that has been read.");
+    line(" */");
+    line("protected abstract void onMalformed(int perceptor, int start, int end);");
+    line("");
+    line("/**");
+    line(" * Called before a perceptor is decoded, allows to skip perceptors, which");
+    line(" * have not changed since the previous message. The values of a skipped");
+    line(" * perceptor are not read and no callbacks are called for it.");
+    line(" *");
+    line(" * @param perceptor Perceptor type.");
+    line(" * @param start Offset of the opening bracket in the message buffer.");
+    line(" * @return Length of the perceptor in bytes, if it is known to be unchanged,");
+    line(" * or 0 if it has to be decoded.");
+    line(" */");
+    line("protected int unchangedLength(int perceptor, int start) {");
+    line("  return 0;");
+    line("}");
+    line("");
+    line("/**");
+    line(" * Called after a perceptor has been decoded completely and its callback");
+    line(" * has been called.");
+    line(" *");
+    line(" * @param perceptor Perceptor type.");
+    line(" * @param start Offset of the opening bracket in the message buffer.");
+    line(" * @param end Offset behind the closing bracket.");
+    line(" */");
+    line("protected void onDecoded(int perceptor, int start, int end) {");
+    line("}");
+    indent--;
+    line("}");
+    return out.toString();
+  }
+
+  private void generateDecode() {
+    line("/**");
+    line(" * Decodes a complete server message and calls the callbacks.");
+    line(" *");
+    line(" * @param message Buffer holding the message.");
+    line(" * @param offset Index of the first byte of the message.");
+    line(" * @param length Number of bytes of the message.");
+    line(" */");
+    line("public final void decode(byte[] message, int offset, int length) {");
+    indent++;
+    line("in.reset(message, offset, length);");
+    line("for (;;) {");
+    indent++;
+    line("int item = in.next();");
+    line("if (item == MessageScanner.END)");
+    line("  return;");
+    line("int start = item == MessageScanner.TOKEN ? in.tokenStart : in.getPosition() - 1;");
+    line("int perceptor = UNKNOWN_PERCEPTOR;");
+    line("boolean ok = item == MessageScanner.OPEN && in.nextSymbol();");
+    line("if (ok) {");
+    indent++;
+    line("perceptor = perceptorOf();");
+    line("int unchanged = perceptor == UNKNOWN_PERCEPTOR ? 0 : unchangedLength(perceptor, start);");
+    line("if (unchanged > 0) {");
+    line("  in.skipTo(start + unchanged);");
+    line("  continue;");
+    line("}");
+    line("switch (perceptor) {");
+    indent++;
+    for (Block b : perceptors) {
+      line("case " + b.constant + ":");
+      line("  ok = " + b.method + "();");
+      line("  break;");
+    }
+    line("default:");
+    line("  ok = in.skipRest();");
+    indent--;
+    line("}");
+    indent--;
+    line("}");
+    line("if (!ok) {");
+    line("  in.skipToDepth(0);");
+    line("  onMalformed(perceptor, start, in.getPosition());");
+    line("}");
+    line("else if (perceptor != UNKNOWN_PERCEPTOR)");
+    line("  onDecoded(perceptor, start, in.getPosition());");
+    indent--;
+    line("}");
+    indent--;
+    line("}");
+    line("");
+  }
+
+  private void generatePerceptorOf() {
+    line("private int perceptorOf() {");
+    indent++;
+    line("switch (in.tokenLength) {");
+    indent++;
+    Map<Integer, List<Block>> byLength = new TreeMap<>();
+    for (Block b : perceptors) {
+      if (!byLength.containsKey(b.name.length()))
+        byLength.put(b.name.length(), new ArrayList<Block>());
+      byLength.get(b.name.length()).add(b);
+    }
+    for (Map.Entry<Integer, List<Block>> e : byLength.entrySet()) {
+      line("case " + e.getKey() + ":");
+      indent++;
+      for (Block b : e.getValue()) {
+        line("if (in.tokenEquals(" + tagConstants.get(b.name) + "))");
+        line("  return " + b.constant + ";");
+      }
+      line("break;");
+      indent--;
+    }
+    indent--;
+    line("}");
+    line("return UNKNOWN_PERCEPTOR;");
+    indent--;
+    line("}");
+    line("");
+  }
+
+  private void generateBlock(Block b) {
+    line("private boolean " + b.method + "() {");
+    indent++;
+    if (!b.perceptor) {
+      line(b.name + "Start = in.tokenStart;");
+      line(b.name + "Length = in.tokenLength;");
+    }
+    List<Value> owned = new ArrayList<>(b.args);
+    for (ListRule r : b.lists)
+      owned.addAll(r.values);
+    List<String> reset = new ArrayList<>();
+    for (Value v : owned) {
+      if (reset.contains(v.field))
+        continue;
+      reset.add(v.field);
+      if (v.kind.equals("real"))
+        line(v.field + " = 0;");
+      else
+        line(v.field + "Length = -1;");
+    }
+    if (b.open != null)
+      line(b.open + "();");
+    for (Value v : b.args)
+      readValue(v);
+    line("for (;;) {");
+    indent++;
+    line("int item = in.next();");
+    line("if (item == MessageScanner.CLOSE)");
+    line("  break;");
+    line("if (item == MessageScanner.TOKEN)");
+    line("  continue; // value not described by the schema");
+    line("if (item == MessageScanner.END || !in.nextSymbol())");
+    line("  return false;");
+    if (!b.lists.isEmpty()) {
+      Map<Integer, List<ListRule>> byLength = new TreeMap<>();
+      for (ListRule r : b.lists) {
+        if (!byLength.containsKey(r.tag.length()))
+          byLength.put(r.tag.length(), new ArrayList<ListRule>());
+        byLength.get(r.tag.length()).add(r);
+      }
+      line("switch (in.tokenLength) {");
+      indent++;
+      for (Map.Entry<Integer, List<ListRule>> e : byLength.entrySet()) {
+        line("case " + e.getKey() + ":");
+        indent++;
+        for (ListRule r : e.getValue()) {
+          line("if (in.tokenEquals(" + tagConstants.get(r.tag) + ")) {");
+          indent++;
+          for (Value v : r.values)
+            readValue(v);
+          line("if (in.next() != MessageScanner.CLOSE)");
+          line("  return false;");
+          if (r.call != null)
+            line(r.call + "();");
+          line("continue;");
+          indent--;
+          line("}");
+        }
+        line("break;");
+        indent--;
+      }
+      indent--;
+      line("}");
+    }
+    if (b.object != null) {
+      line("if (!" + b.object.method + "())");
+      line("  return false;");
+    } else {
+      line("if (!in.skipRest())");
+      line("  return false;");
+    }
+    indent--;
+    line("}");
+    if (b.call != null)
+      line(b.call + "();");
+    line("return true;");
+    indent--;
+    line("}");
+    line("");
+  }
+
+  private void readValue(Value v) {
+    switch (v.kind) {
+      case "real":
+        line("if (!in.nextReal())");
+        line("  return false;");
+        line(v.field + " = in.real;");
+        break;
+      case "symbol":
+        line("if (!in.nextSymbol())");
+        line("  return false;");
+        line(v.field + "Start = in.tokenStart;");
+        line(v.field + "Length = in.tokenLength;");
+        break;
+      default:
+        line("if (!in.nextText())");
+        line("  return false;");
+        line(v.field + "Start = in.tokenStart;");
+        line(v.field + "Length = in.tokenLength;");
+        break;
+    }
+  }
+}